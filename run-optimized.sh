@@ -0,0 +1,165 @@
+#!/bin/bash
+
+# Optimized launch of the Spring Boot API
+# Runs the Spring AOT processed jar from an extracted layout with an AppCDS archive that was
+# recorded while the smoke suite exercised the API, so startup skips most class loading,
+# verification and bean definition work.
+
+set -e
+
+cd "$(dirname "$0")"
+
+JAR=target/karate-sandbox-1.0.0-SNAPSHOT.jar
+OUT=target/optimized
+APP_JAR=$OUT/karate-sandbox-1.0.0-SNAPSHOT.jar
+ARCHIVE=$OUT/application.jsa
+PORT=${PORT:-8085}
+HEALTH_URL=http://localhost:$PORT/api/health
+
+print_usage() {
+    echo "Usage: $0 [command] [options]"
+    echo ""
+    echo "Commands:"
+    echo "  build           - Build the AOT processed jar and extract it to $OUT"
+    echo "  train           - Record $ARCHIVE while the smoke suite runs against the API"
+    echo "  start [args]    - Start the API with AOT and the CDS archive"
+    echo "  benchmark [n]   - Time to first successful /api/health, standard vs optimized (default 5 runs)"
+    echo "  help            - Show this help message"
+    echo ""
+    echo "Examples:"
+    echo "  $0 build && $0 train && $0 start"
+    echo "  $0 benchmark 10"
+}
+
+# Polls the health endpoint until it answers 200; returns 1 if the process exits first
+wait_for_health() {
+    local pid=$1
+    until curl -sf -o /dev/null "$HEALTH_URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            return 1
+        fi
+        sleep 0.02
+    done
+}
+
+stop() {
+    kill -TERM "$1" 2>/dev/null || true
+    wait "$1" 2>/dev/null || true
+}
+
+require_extracted() {
+    if [ ! -f "$APP_JAR" ]; then
+        echo "❌ $APP_JAR not found, run '$0 build' first"
+        exit 1
+    fi
+}
+
+require_archive() {
+    require_extracted
+    if [ ! -f "$ARCHIVE" ]; then
+        echo "❌ $ARCHIVE not found, run '$0 train' first"
+        exit 1
+    fi
+}
+
+# Milliseconds from launching the command to the first successful health check
+time_to_health() {
+    local start end pid
+    start=$(date +%s%N)
+    "$@" > "$OUT/benchmark.log" 2>&1 &
+    pid=$!
+    if ! wait_for_health "$pid"; then
+        echo "❌ API exited before becoming healthy, see $OUT/benchmark.log" >&2
+        exit 1
+    fi
+    end=$(date +%s%N)
+    stop "$pid"
+    echo $(( (end - start) / 1000000 ))
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+COMMAND=${1:-help}
+shift || true
+
+case $COMMAND in
+    build)
+        echo "🔨 Building the AOT processed jar..."
+        mvn -B -Paot -DskipTests package
+        rm -rf "$OUT"
+        # CDS only archives classes loaded from plain jars on the class path, not nested ones
+        java -Djarmode=tools -jar "$JAR" extract --destination "$OUT"
+        echo "✅ Extracted to $OUT"
+        ;;
+
+    train)
+        require_extracted
+        if curl -sf -o /dev/null "$HEALTH_URL"; then
+            echo "❌ Something is already serving $HEALTH_URL, stop it first"
+            exit 1
+        fi
+        rm -f "$ARCHIVE"
+        echo "🧪 Training run: smoke suite against the API..."
+        java -XX:ArchiveClassesAtExit="$ARCHIVE" -Xlog:cds=off \
+            -Dspring.aot.enabled=true -jar "$APP_JAR" --server.port="$PORT" > "$OUT/training.log" 2>&1 &
+        pid=$!
+        wait_for_health "$pid" || { echo "❌ API did not start, see $OUT/training.log"; exit 1; }
+        status=0
+        mvn -B test -Pkarate-smoke -Dtest.env=local || status=$?
+        # The archive is written when the JVM exits
+        stop "$pid"
+        if [ ! -f "$ARCHIVE" ]; then
+            echo "❌ No archive was written, see $OUT/training.log"
+            exit 1
+        fi
+        if [ $status -ne 0 ]; then
+            echo "⚠️  Smoke suite failed; $ARCHIVE may miss classes of the failed paths"
+            exit $status
+        fi
+        echo "✅ Recorded $ARCHIVE"
+        ;;
+
+    start)
+        require_archive
+        echo "🌐 Starting Spring Boot API with AOT and CDS..."
+        exec java -XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true -jar "$APP_JAR" --server.port="$PORT" "$@"
+        ;;
+
+    benchmark)
+        require_archive
+        RUNS=${1:-5}
+        RESULTS=$OUT/startup-benchmark.csv
+        echo "mode,run,millis" > "$RESULTS"
+        for mode in standard optimized; do
+            for run in $(seq 1 "$RUNS"); do
+                if [ "$mode" = standard ]; then
+                    millis=$(time_to_health java -jar "$JAR" --server.port="$PORT")
+                else
+                    millis=$(time_to_health java -XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true \
+                        -jar "$APP_JAR" --server.port="$PORT")
+                fi
+                echo "$mode,$run,$millis" >> "$RESULTS"
+                echo "  $mode run $run: ${millis} ms"
+            done
+        done
+        echo ""
+        echo "Time to first successful /api/health (median of $RUNS):"
+        for mode in standard optimized; do
+            printf "  %-10s %6s ms\n" "$mode" "$(grep "^$mode," "$RESULTS" | cut -d, -f3 | median)"
+        done
+        echo "Results written to $RESULTS"
+        ;;
+
+    help|--help|-h)
+        print_usage
+        ;;
+
+    *)
+        echo "❌ Unknown command: $COMMAND"
+        echo ""
+        print_usage
+        exit 1
+        ;;
+esac
@@ -0,0 +1,112 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialisation and deserialisation of {@link User} and {@link Product}, singly and as a
+ * page of results, with an {@link ObjectMapper} configured the way Spring Boot configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRoundTripBenchmark {
+
+    private static final int PAGE = 100;
+
+    private ObjectWriter writer;
+    private ObjectReader userReader;
+    private ObjectReader productReader;
+    private ObjectReader productPageReader;
+
+    private User user;
+    private Product product;
+    private List<Product> productPage;
+    private byte[] userJson;
+    private byte[] productJson;
+    private byte[] productPageJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writer();
+        userReader = mapper.readerFor(User.class);
+        productReader = mapper.readerFor(Product.class);
+        productPageReader = mapper.readerFor(new TypeReference<List<Product>>() {});
+
+        user = new User(42L, "Jane Smith", "jane.smith@example.com", "admin", true);
+        product = new Product(42L, "Laptop", "High-performance laptop", new BigDecimal("999.99"), "Electronics", 10);
+        productPage = new ArrayList<>(PAGE);
+        for (long i = 1; i <= PAGE; i++) {
+            productPage.add(new Product(i, "Product " + i, "Benchmark product " + i,
+                    BigDecimal.valueOf(i * 100 + 99, 2), "Category-" + i % 20, (int) i));
+        }
+        userJson = writer.writeValueAsBytes(user);
+        productJson = writer.writeValueAsBytes(product);
+        productPageJson = writer.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return writer.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return userReader.readValue(userJson);
+    }
+
+    @Benchmark
+    public User roundTripUser() throws IOException {
+        return userReader.readValue(writer.writeValueAsBytes(user));
+    }
+
+    @Benchmark
+    public byte[] writeProduct() throws IOException {
+        return writer.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product readProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public Product roundTripProduct() throws IOException {
+        return productReader.readValue(writer.writeValueAsBytes(product));
+    }
+
+    @Benchmark
+    public byte[] writeProductPage() throws IOException {
+        return writer.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public List<Product> readProductPage() throws IOException {
+        return productPageReader.readValue(productPageJson);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.token.JwtCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtCodec} against the string-based token code it replaced in {@code TokenController}.
+ *
+ * The {@code legacy} methods reproduce the old implementation, which did not sign tokens at all,
+ * so the codec's numbers include an HMAC-SHA256 the old ones do not. Run with
+ * {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtCodecBenchmark {
+
+    private JwtCodec codec;
+    private String codecToken;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        codec = new JwtCodec("benchmark-secret".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1), Clock.systemUTC());
+        codecToken = codec.issue();
+        legacyToken = legacyIssue();
+    }
+
+    @Benchmark
+    public String issue() {
+        return codec.issue();
+    }
+
+    @Benchmark
+    public JwtCodec.Status verify() {
+        return codec.verify(codecToken);
+    }
+
+    @Benchmark
+    public String legacyIssue() {
+        String header = Base64.getEncoder().encodeToString("{\"typ\":\"JWT\",\"alg\":\"HS256\"}".getBytes());
+        String payload = Base64.getEncoder().encodeToString(
+            String.format("{\"sub\":\"karate-test\",\"iat\":%d,\"exp\":%d}",
+                System.currentTimeMillis()/1000, (System.currentTimeMillis()/1000) + 3600)
+            .getBytes());
+        String signature = Base64.getEncoder().encodeToString(UUID.randomUUID().toString().getBytes());
+        return String.format("%s.%s.%s", header, payload, signature);
+    }
+
+    @Benchmark
+    public boolean legacyVerify() {
+        String[] parts = legacyToken.split("\\.");
+        if (parts.length != 3) {
+            return false;
+        }
+        String headerJson = new String(Base64.getDecoder().decode(parts[0]));
+        if (!headerJson.contains("\"typ\":\"JWT\"") || !headerJson.contains("\"alg\":")) {
+            return false;
+        }
+        String payloadJson = new String(Base64.getDecoder().decode(parts[1]));
+        if (!payloadJson.contains("\"sub\"") || !payloadJson.contains("\"iat\"") || !payloadJson.contains("\"exp\"")) {
+            return false;
+        }
+        long currentTime = System.currentTimeMillis() / 1000;
+        String expStr = payloadJson.split("\"exp\":")[1].split("}")[0];
+        return currentTime <= Long.parseLong(expStr);
+    }
+}
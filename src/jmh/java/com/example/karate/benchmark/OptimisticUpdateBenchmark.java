@@ -0,0 +1,98 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.model.Product;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.VersionConflictException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many writers hammering the same product id, with readers running alongside.
+ *
+ * {@code blind} writers update unconditionally; {@code conditional} writers read the version,
+ * update with it as the expected version and retry on a conflict, as an HTTP client using
+ * {@code If-Match} would. The {@code read} methods show that lookups keep their throughput
+ * while the writers contend, because updates swap in copies instead of locking readers out.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class OptimisticUpdateBenchmark {
+
+    private ProductRepository products;
+    private Long id;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = new ProductRepository();
+        id = products.create(new Product(null, "Hot", "Contended product", BigDecimal.ONE, "Bench", 0)).getId();
+    }
+
+    /**
+     * Attempts and conflicts per conditional writer, reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflicts {
+        public long conflicts;
+    }
+
+    @Benchmark
+    @Group("blind")
+    @GroupThreads(8)
+    public Product blindUpdate() {
+        return products.update(id, product -> {
+            product.setQuantity(product.getQuantity() + 1);
+            return product;
+        }).orElseThrow();
+    }
+
+    @Benchmark
+    @Group("blind")
+    @GroupThreads(8)
+    public Product blindRead() {
+        return products.findById(id).orElseThrow();
+    }
+
+    @Benchmark
+    @Group("conditional")
+    @GroupThreads(8)
+    public Product conditionalUpdate(Conflicts counters) {
+        while (true) {
+            long seen = products.findById(id).orElseThrow().getVersion();
+            try {
+                return products.update(id, seen, product -> {
+                    product.setQuantity(product.getQuantity() + 1);
+                    return product;
+                }).orElseThrow();
+            } catch (VersionConflictException e) {
+                counters.conflicts++;
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("conditional")
+    @GroupThreads(8)
+    public Product conditionalRead() {
+        return products.findById(id).orElseThrow();
+    }
+}
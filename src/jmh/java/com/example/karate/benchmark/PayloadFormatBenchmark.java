@@ -0,0 +1,119 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pages of {@link Product} and {@link User} in each encoding the listings can negotiate. Setup
+ * prints the bytes each page takes on the wire, plain and gzipped as {@code server.compression}
+ * sends it; the benchmarks time encoding, decoding and the gzip step itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    /** Records per page: the default listing size and a large export-sized page. */
+    @Param({"10", "1000"})
+    public int page;
+
+    private ObjectWriter writer;
+    private ObjectReader productPageReader;
+    private ObjectReader userPageReader;
+
+    private List<Product> productPage;
+    private List<User> userPage;
+    private byte[] productBytes;
+    private byte[] userBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper mapper = switch (format) {
+            case "smile" -> json.copyWith(new SmileFactory());
+            case "cbor" -> json.copyWith(new CBORFactory());
+            default -> json;
+        };
+        writer = mapper.writer();
+        productPageReader = mapper.readerFor(new TypeReference<List<Product>>() {});
+        userPageReader = mapper.readerFor(new TypeReference<List<User>>() {});
+
+        productPage = new ArrayList<>(page);
+        userPage = new ArrayList<>(page);
+        for (long i = 1; i <= page; i++) {
+            productPage.add(new Product(i, "Product " + i, "Benchmark product " + i,
+                    BigDecimal.valueOf(i * 100 + 99, 2), "Category-" + i % 20, (int) i));
+            userPage.add(new User(i, "User " + i, "user" + i + "@example.com", i % 10 == 0 ? "admin" : "user", i % 3 != 0));
+        }
+        productBytes = writer.writeValueAsBytes(productPage);
+        userBytes = writer.writeValueAsBytes(userPage);
+        System.out.printf("%n%s, %d per page: products %,d bytes (%,d gzipped), users %,d bytes (%,d gzipped)%n",
+                format, page, productBytes.length, gzip(productBytes).length, userBytes.length, gzip(userBytes).length);
+    }
+
+    @Benchmark
+    public byte[] writeProducts() throws IOException {
+        return writer.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public List<Product> readProducts() throws IOException {
+        return productPageReader.readValue(productBytes);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws IOException {
+        return writer.writeValueAsBytes(userPage);
+    }
+
+    @Benchmark
+    public List<User> readUsers() throws IOException {
+        return userPageReader.readValue(userBytes);
+    }
+
+    /** What compression adds on top of encoding, for the same page. */
+    @Benchmark
+    public byte[] gzipProducts() throws IOException {
+        return gzip(productBytes);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.model.Product;
+import com.example.karate.repository.ColumnarProductStore;
+import com.example.karate.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductRepository}, with its indexes and with {@code sandbox.products.columnar-filters},
+ * against {@link ColumnarProductStore} at catalog sizes where the object representation starts
+ * to hurt. Setup prints the heap each store retains per product, strings included; the
+ * benchmarks time the listing filters of {@code GET /api/products} and a full-catalog count.
+ *
+ * Runs 1M products in a 3GB heap by default. 10M columnar products fit in 4GB with
+ * {@code -p records=10000000 -p store=columnar -jvmArgsAppend -Xmx4g}; the 10M object store
+ * keeps about 4.7GB live and needs a machine with well over 6GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ProductStoreBenchmark {
+
+    static final int CATEGORIES = 20;
+
+    @Param({"1000000"})
+    public int records;
+
+    /** The repository with its indexes, the repository with filter columns, or the all-column store. */
+    @Param({"objects", "columnar-filters", "columnar"})
+    public String store;
+
+    private ProductRepository repository;
+    private ColumnarProductStore columnar;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        if ("columnar".equals(store)) {
+            columnar = new ColumnarProductStore();
+            for (int i = 0; i < records; i++) {
+                columnar.create(product(i));
+            }
+        } else {
+            repository = new ProductRepository("columnar-filters".equals(store));
+            for (int i = 0; i < records; i++) {
+                repository.create(product(i));
+            }
+        }
+        long bytes = usedHeap() - before;
+        System.out.printf("%n%s store, %,d products: %,d MB retained, %d bytes per product%n",
+                store, records, bytes >> 20, bytes / records);
+    }
+
+    /** A rare category: one product in 20, first page. */
+    @Benchmark
+    public List<Product> pageByCategory() {
+        return page("Category-7", null, null, 0);
+    }
+
+    /** A narrow price band, tenth page. */
+    @Benchmark
+    public List<Product> pageByPriceRange() {
+        return page(null, new BigDecimal("100.00"), new BigDecimal("109.99"), 90);
+    }
+
+    @Benchmark
+    public List<Product> pageByCategoryAndPriceRange() {
+        return page("Category-7", new BigDecimal("100.00"), new BigDecimal("199.99"), 0);
+    }
+
+    /** Every product in the price band: a price index walk for objects, a full scan for columns. */
+    @Benchmark
+    public long countByPriceRange() {
+        BigDecimal min = new BigDecimal("100.00");
+        BigDecimal max = new BigDecimal("199.99");
+        return columnar != null ? columnar.count(null, min, max) : repository.find(null, min, max).count();
+    }
+
+    private List<Product> page(String category, BigDecimal minPrice, BigDecimal maxPrice, int offset) {
+        if (columnar != null) {
+            return columnar.find(category, minPrice, maxPrice, null, offset, 10);
+        }
+        return repository.find(category, minPrice, maxPrice).skip(offset).limit(10).toList();
+    }
+
+    private static Product product(int i) {
+        BigDecimal price = BigDecimal.valueOf(i % 1000 * 100 + 99, 2);
+        return new Product(null, "Product " + i, "Benchmark product " + i, price, "Category-" + i % CATEGORIES, i % 500);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.karate.benchmark;
+
+import com.example.karate.model.Product;
+import com.example.karate.persistence.PersistenceProperties;
+import com.example.karate.persistence.StorePersistence;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Product write throughput with the write-ahead log off and under each fsync policy.
+ *
+ * Run with several thread counts ({@code -t 1}, {@code -t 8}, ...) to see group commit at work:
+ * under {@code ALWAYS} concurrent writers share fsyncs, so throughput grows with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(4)
+public class WriteAheadLogBenchmark {
+
+    /** {@code OFF} runs without persistence; the others are {@link PersistenceProperties.FsyncPolicy} values. */
+    @Param({"OFF", "NEVER", "INTERVAL", "ALWAYS"})
+    public String fsync;
+
+    private ProductRepository products;
+    private StorePersistence persistence;
+    private Path directory;
+    private Long id;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        products = new ProductRepository();
+        id = products.create(new Product(null, "Benchmark", "Benchmark product", BigDecimal.ONE, "Bench", 1)).getId();
+        if (!"OFF".equals(fsync)) {
+            directory = Files.createTempDirectory("wal-benchmark");
+            PersistenceProperties properties = new PersistenceProperties();
+            properties.setEnabled(true);
+            properties.setDirectory(directory);
+            properties.setFsync(PersistenceProperties.FsyncPolicy.valueOf(fsync));
+            properties.setFsyncInterval(Duration.ofMillis(50));
+            properties.setSnapshotInterval(Duration.ZERO);
+            persistence = new StorePersistence(properties, new ObjectMapper(), products, new UserRepository());
+            persistence.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (persistence != null) {
+            persistence.destroy();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public Product create() {
+        return products.create(new Product(null, "Widget", "Benchmark write", BigDecimal.TEN, "Bench", 5));
+    }
+
+    @Benchmark
+    public Object update() {
+        return products.update(id, product -> {
+            product.setQuantity(product.getQuantity() + 1);
+            return product;
+        });
+    }
+}
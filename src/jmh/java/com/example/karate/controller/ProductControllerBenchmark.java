@@ -0,0 +1,110 @@
+package com.example.karate.controller;
+
+import com.example.karate.model.Product;
+import com.example.karate.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductController} listings under each filter combination, and lookups by id, at
+ * several store sizes.
+ *
+ * With {@code cached} off the response cache keeps nothing, so every listing is filtered and
+ * serialised; with it on, the same query is answered from the cache as it is between writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ProductControllerBenchmark {
+
+    static final int CATEGORIES = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ProductController controller;
+    private WebRequest request;
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        ProductRepository repository = new ProductRepository();
+        ResponseCache responseCache = new ResponseCache(cached ? DataSize.ofMegabytes(8) : DataSize.ofBytes(0));
+        controller = new ProductController(repository, Jackson2ObjectMapperBuilder.json().build(), responseCache);
+        repository.createAll(products(records));
+        request = new ServletWebRequest(new MockHttpServletRequest());
+        cursor = PageCursor.encode(records / 2);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listAll() {
+        return controller.getAllProducts(null, null, null, 0, 10, null, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listDeepPage() {
+        return controller.getAllProducts(null, null, null, 50, 10, null, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listAfterCursor() {
+        return controller.getAllProducts(null, null, null, 0, 10, cursor, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listByCategory() {
+        return controller.getAllProducts("Category-7", null, null, 0, 10, null, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listByPriceRange() {
+        return controller.getAllProducts(null, new BigDecimal("100.00"), new BigDecimal("109.99"), 0, 10, null, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> listByCategoryAndPriceRange() {
+        return controller.getAllProducts("Category-7", new BigDecimal("100.00"), new BigDecimal("199.99"), 0, 10, null, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getById() {
+        return controller.getProductById(ThreadLocalRandom.current().nextLong(1, records + 1), request);
+    }
+
+    static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = BigDecimal.valueOf(i % 1000 * 100 + 99, 2);
+            products.add(new Product(null, "Product " + i, "Benchmark product " + i, price,
+                    "Category-" + i % CATEGORIES, i % 500));
+        }
+        return products;
+    }
+}
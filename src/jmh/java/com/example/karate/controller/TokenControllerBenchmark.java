@@ -0,0 +1,74 @@
+package com.example.karate.controller;
+
+import com.example.karate.model.TokenRequest;
+import com.example.karate.token.JwtCodec;
+import com.example.karate.token.RevocationList;
+import com.example.karate.token.TokenCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenController} issuing tokens and validating the {@code iam-claimsetjwt} header, with
+ * the verified-token cache hit, with it disabled, and for a token that fails verification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenControllerBenchmark {
+
+    private final TokenRequest tokenRequest = new TokenRequest(false, "benchmark", "local");
+
+    private TokenController cachingController;
+    private TokenController uncachedController;
+    private String token;
+    private String forgedToken;
+
+    @Setup
+    public void setUp() {
+        Clock clock = Clock.systemUTC();
+        JwtCodec codec = new JwtCodec("benchmark-secret".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1), clock);
+        RevocationList revocations = new RevocationList(clock);
+        cachingController = new TokenController(codec, new TokenCache(10_000, clock), revocations);
+        uncachedController = new TokenController(codec, new TokenCache(0, clock), revocations);
+        token = codec.issue();
+        forgedToken = token.substring(0, token.lastIndexOf('.') + 1) + "dGVzdC1zaWduYXR1cmU";
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> generateToken() {
+        return cachingController.generateToken(tokenRequest);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> validateCached() {
+        return cachingController.validateAuthHeader(token);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> validateUncached() {
+        return uncachedController.validateAuthHeader(token);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> validateForged() {
+        return cachingController.validateAuthHeader(forgedToken);
+    }
+}
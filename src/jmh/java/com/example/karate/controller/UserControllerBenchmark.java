@@ -0,0 +1,89 @@
+package com.example.karate.controller;
+
+import com.example.karate.model.User;
+import com.example.karate.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserController#searchUsers} for selective, broad and short queries, and lookups by id,
+ * at several store sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class UserControllerBenchmark {
+
+    private static final String[] ROLES = {"admin", "user", "viewer", "auditor"};
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    private UserController controller;
+    private WebRequest request;
+
+    @Setup
+    public void setUp() {
+        UserRepository repository = new UserRepository();
+        controller = new UserController(repository, Jackson2ObjectMapperBuilder.json().build(),
+                new ResponseCache(DataSize.ofMegabytes(8)));
+        List<User> users = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            users.add(new User(null, "Member " + Integer.toString(i, 36), "member" + i + "@example.com",
+                    ROLES[i % ROLES.length], i % 3 != 0));
+        }
+        repository.createAll(users);
+        request = new ServletWebRequest(new MockHttpServletRequest());
+    }
+
+    /** Matches a handful of users: one name suffix. */
+    @Benchmark
+    public ResponseEntity<List<User>> searchSelective() {
+        return controller.searchUsers("ember zz", 10, 0);
+    }
+
+    /** Matches every user; only the first page is materialised. */
+    @Benchmark
+    public ResponseEntity<List<User>> searchBroad() {
+        return controller.searchUsers("example.com", 10, 0);
+    }
+
+    /** Shorter than a trigram, so served by a scan. */
+    @Benchmark
+    public ResponseEntity<List<User>> searchShortQuery() {
+        return controller.searchUsers("7@", 10, 0);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<User>> searchWithOffset() {
+        return controller.searchUsers("member1", 10, 100);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getById() {
+        return controller.getUserById(ThreadLocalRandom.current().nextLong(1, records + 1), request);
+    }
+}
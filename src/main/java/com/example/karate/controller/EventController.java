@@ -0,0 +1,74 @@
+package com.example.karate.controller;
+
+import com.example.karate.events.ChangeStream;
+import com.example.karate.events.EventProperties;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    private final ChangeStream changeStream;
+    private final EventProperties properties;
+
+    public EventController(ChangeStream changeStream, EventProperties properties) {
+        this.changeStream = changeStream;
+        this.properties = properties;
+    }
+
+    /**
+     * Streams create, update and delete events as {@code text/event-stream}, for one resource or
+     * for both. Frames are rendered once by the {@link ChangeStream} and written to each
+     * subscriber as they are, so this only wraps them for the emitter.
+     */
+    @GetMapping
+    public ResponseEntity<ResponseBodyEmitter> streamChanges(
+            @RequestParam(required = false) String resource,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (resource != null && !ChangeStream.PRODUCTS.equals(resource) && !ChangeStream.USERS.equals(resource)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(properties.getTimeout().toMillis());
+        ChangeStream.Subscription subscription;
+        try {
+            subscription = changeStream.subscribe(resource, lastEventId, new ChangeStream.Sink() {
+                @Override
+                public void send(List<byte[]> frames) throws IOException {
+                    Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+                    for (byte[] frame : frames) {
+                        batch.add(new ResponseBodyEmitter.DataWithMediaType(frame, MediaType.TEXT_EVENT_STREAM));
+                    }
+                    // One flush per batch rather than per event
+                    emitter.send(batch);
+                }
+
+                @Override
+                public void close() {
+                    emitter.complete();
+                }
+            });
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        emitter.onCompletion(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noStore())
+                // Keep reverse proxies from buffering the stream
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+}
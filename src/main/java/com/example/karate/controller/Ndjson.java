@@ -0,0 +1,96 @@
+package com.example.karate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Newline-delimited JSON streaming shared by the export and import endpoints.
+ *
+ * Both directions handle one record at a time through Jackson's streaming API, so memory use
+ * does not grow with the number of records.
+ */
+final class Ndjson {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    /** Records handed to the import sink at a time. */
+    static final int IMPORT_BATCH_SIZE = 1_000;
+
+    private Ndjson() {}
+
+    /**
+     * Writes each of {@code records} as one JSON line straight to the response.
+     */
+    static <T> StreamingResponseBody export(ObjectMapper mapper, Class<T> type, Iterable<T> records) {
+        // Flushing after every record would turn each line into its own network write
+        ObjectWriter writer = mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                for (T record : records) {
+                    writer.writeValue(generator, record);
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+
+    /**
+     * Parses records one line at a time and passes them to {@code sink} in batches of
+     * {@link #IMPORT_BATCH_SIZE}. Returns the number of records imported; records parsed before
+     * a malformed line are kept.
+     */
+    static <T> long importRecords(ObjectMapper mapper, Class<T> type, InputStream in, Consumer<List<T>> sink)
+            throws IOException {
+        long imported = 0;
+        List<T> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        try (MappingIterator<T> records = mapper.readerFor(type).readValues(in)) {
+            while (records.hasNextValue()) {
+                batch.add(records.nextValue());
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    sink.accept(batch);
+                    imported += batch.size();
+                    batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+                imported += batch.size();
+            }
+            throw new ImportException(imported, e);
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+            imported += batch.size();
+        }
+        return imported;
+    }
+
+    /**
+     * Raised when a line cannot be parsed; carries how many records were imported before it.
+     */
+    static final class ImportException extends IOException {
+        private final long imported;
+
+        ImportException(long imported, JsonProcessingException cause) {
+            super(cause.getOriginalMessage(), cause);
+            this.imported = imported;
+        }
+
+        long getImported() {
+            return imported;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.karate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Opaque keyset pagination cursors shared by the listing endpoints.
+ *
+ * A cursor encodes the id of the last item a client has seen; the next page is read by seeking
+ * past that id in the id-ordered store, so it stays stable while items are added or removed
+ * and does not get slower the further a client pages.
+ */
+final class PageCursor {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String PREFIX = "id:";
+
+    private PageCursor() {}
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns the id encoded in {@code cursor}, or {@code null} when no cursor was sent.
+     *
+     * @throws IllegalArgumentException if the cursor was not issued by {@link #encode(long)}
+     */
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        if (!decoded.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return Long.parseLong(decoded.substring(PREFIX.length()));
+    }
+
+    /**
+     * Takes at most {@code size} items from {@code matches} and, when more remain, advertises
+     * the cursor for the following page in the {@value #NEXT_CURSOR_HEADER} header.
+     */
+    static <T> ResponseEntity<List<T>> page(Stream<T> matches, int size, ToLongFunction<T> idOf) {
+        if (size <= 0) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<T> items = matches.limit(size + 1L).toList();
+        if (items.size() <= size) {
+            return ResponseEntity.ok(items);
+        }
+        List<T> page = items.subList(0, size);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encode(idOf.applyAsLong(page.get(size - 1))))
+                .body(page);
+    }
+}
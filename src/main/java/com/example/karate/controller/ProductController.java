@@ -1,112 +1,306 @@
 package com.example.karate.controller;
 
+import com.example.karate.model.BulkOperation;
+import com.example.karate.model.BulkResult;
 import com.example.karate.model.Product;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.VersionConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
-    private List<Product> products = new ArrayList<>();
-    private Long nextId = 1L;
+    private static final String RESOURCE = "products";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final ResponseFormats responseFormats;
+
+    public ProductController(ProductRepository productRepository, ObjectMapper objectMapper, ResponseCache responseCache) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.responseFormats = new ResponseFormats(objectMapper);
 
-    public ProductController() {
         // Initialise with some dummy data
-        products.add(new Product(nextId++, "Laptop", "High-performance laptop", new BigDecimal("999.99"), "Electronics", 10));
-        products.add(new Product(nextId++, "Smartphone", "Latest smartphone model", new BigDecimal("699.99"), "Electronics", 25));
-        products.add(new Product(nextId++, "Coffee Mug", "Ceramic coffee mug", new BigDecimal("12.99"), "Home", 100));
+        productRepository.create(new Product(null, "Laptop", "High-performance laptop", new BigDecimal("999.99"), "Electronics", 10));
+        productRepository.create(new Product(null, "Smartphone", "Latest smartphone model", new BigDecimal("699.99"), "Electronics", 25));
+        productRepository.create(new Product(null, "Coffee Mug", "Ceramic coffee mug", new BigDecimal("12.99"), "Home", 100));
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(
+    public ResponseEntity<byte[]> getAllProducts(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+
+        Long afterId;
+        try {
+            afterId = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        List<Product> filteredProducts = products.stream()
-                .filter(product -> category == null || product.getCategory().equals(category))
-                .filter(product -> minPrice == null || product.getPrice().compareTo(minPrice) >= 0)
-                .filter(product -> maxPrice == null || product.getPrice().compareTo(maxPrice) <= 0)
-                .skip((long) page * size)
-                .limit(size)
-                .toList();
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        long version = productRepository.version();
+        String etag = responseCache.collectionTag(RESOURCE, version, format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
 
-        return ResponseEntity.ok(filteredProducts);
+        ResponseCache.Entry listing = responseCache.get(RESOURCE, version, () -> {
+            // A cursor takes precedence over page, which is kept for existing clients
+            Stream<Product> filteredProducts = productRepository.find(category, minPrice, maxPrice, afterId);
+            if (afterId == null) {
+                filteredProducts = filteredProducts.skip((long) page * size);
+            }
+            return ResponseCache.render(format, PageCursor.page(filteredProducts, size, Product::getId));
+        }, category, minPrice, maxPrice, page, size, afterId, format);
+        return ResponseCache.toResponse(listing, etag);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Optional<Product> product = products.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst();
-
-        return product.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id, WebRequest request) {
+        Optional<Product> product = productRepository.findById(id);
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        String etag = responseCache.recordTag(RESOURCE, id, product.get().getVersion(), format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
+        return ResponseCache.toResponse(ResponseCache.render(format, ResponseEntity.ok(product.get())), etag);
     }
 
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
-        product.setId(nextId++);
-        products.add(product);
-        return ResponseEntity.status(HttpStatus.CREATED).body(product);
+        return ResponseEntity.status(HttpStatus.CREATED).body(productRepository.create(product));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product updatedProduct) {
-        Optional<Product> existingProduct = products.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst();
-
-        if (existingProduct.isPresent()) {
-            Product product = existingProduct.get();
-            product.setName(updatedProduct.getName());
-            product.setDescription(updatedProduct.getDescription());
-            product.setPrice(updatedProduct.getPrice());
-            product.setCategory(updatedProduct.getCategory());
-            product.setQuantity(updatedProduct.getQuantity());
-            return ResponseEntity.ok(product);
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> updateProduct(
+            @PathVariable Long id,
+            @RequestBody Product updatedProduct,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest request) {
+        return conditionalUpdate(id, ifMatch, request, product -> replaceFields(product, updatedProduct));
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<Product> partialUpdateProduct(@PathVariable Long id, @RequestBody Product updates) {
-        Optional<Product> existingProduct = products.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst();
-
-        if (existingProduct.isPresent()) {
-            Product product = existingProduct.get();
-            if (updates.getName() != null) product.setName(updates.getName());
-            if (updates.getDescription() != null) product.setDescription(updates.getDescription());
-            if (updates.getPrice() != null) product.setPrice(updates.getPrice());
-            if (updates.getCategory() != null) product.setCategory(updates.getCategory());
-            return ResponseEntity.ok(product);
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> partialUpdateProduct(
+            @PathVariable Long id,
+            @RequestBody Product updates,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest request) {
+        return conditionalUpdate(id, ifMatch, request, product -> patchFields(product, updates));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        boolean removed = products.removeIf(product -> product.getId().equals(id));
+        boolean removed = productRepository.deleteById(id);
         return removed ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getCategories() {
-        List<String> categories = products.stream()
-                .map(Product::getCategory)
-                .distinct()
-                .toList();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getCategories(WebRequest request) {
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        long version = productRepository.version();
+        String etag = responseCache.collectionTag(RESOURCE, version, format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
+
+        ResponseCache.Entry categories = responseCache.get(RESOURCE + "/categories", version,
+                () -> ResponseCache.render(format, ResponseEntity.ok(productRepository.findCategories())), format);
+        return ResponseCache.toResponse(categories, etag);
+    }
+
+    /**
+     * Aggregates over all products, and per category with {@code groupBy=category}. Served from
+     * the repository's running totals, so the cost does not grow with the catalog.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<byte[]> getStats(@RequestParam(required = false) String groupBy, WebRequest request) {
+        if (groupBy != null && !"category".equals(groupBy)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        long version = productRepository.version();
+        String etag = responseCache.collectionTag(RESOURCE, version, format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
+
+        ResponseCache.Entry stats = responseCache.get(RESOURCE + "/stats", version, () -> {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("total", productRepository.stats());
+            if (groupBy != null) {
+                response.put("groupBy", groupBy);
+                response.put("groups", productRepository.statsByCategory());
+            }
+            return ResponseCache.render(format, ResponseEntity.ok(response));
+        }, groupBy, format);
+        return ResponseCache.toResponse(stats, etag);
+    }
+
+    /**
+     * Rebuilds the running totals from the stored products with a parallel reduction, for use
+     * after a suspected drift; writes wait while it runs.
+     */
+    @PostMapping("/stats/_recompute")
+    public ResponseEntity<Map<String, Object>> recomputeStats() {
+        long start = System.nanoTime();
+        boolean drifted = productRepository.recomputeStats(ForkJoinPool.commonPool());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("drifted", drifted);
+        response.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        response.put("total", productRepository.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(Ndjson.MEDIA_TYPE))
+                .body(Ndjson.export(objectMapper, Product.class, productRepository.findAll()));
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importProducts(InputStream body) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("imported", Ndjson.importRecords(objectMapper, Product.class, body, productRepository::createAll));
+            return ResponseEntity.ok(response);
+        } catch (Ndjson.ImportException e) {
+            response.put("imported", e.getImported());
+            response.put("error", "Invalid NDJSON record: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PostMapping("/_bulk")
+    public ResponseEntity<List<BulkResult<Product>>> bulkProducts(@RequestBody List<BulkOperation<Product>> operations) {
+        // Reserve ids for every create up front with a single atomic step
+        int creates = (int) operations.stream().filter(ProductController::isCreate).count();
+        long firstId = productRepository.allocateIds(creates);
+
+        List<BulkResult<Product>> results = productRepository.inBatch(() -> {
+            List<BulkResult<Product>> applied = new ArrayList<>(operations.size());
+            long nextId = firstId;
+            for (BulkOperation<Product> operation : operations) {
+                if (isCreate(operation)) {
+                    Product product = operation.getData();
+                    product.setId(nextId++);
+                    // As in create: a client-supplied version must not become the If-Match baseline
+                    product.setVersion(0);
+                    applied.add(BulkResult.success(BulkOperation.CREATE, product.getId(), 201, productRepository.insert(product)));
+                } else {
+                    applied.add(applyBulk(operation));
+                }
+            }
+            return applied;
+        });
+        return ResponseEntity.ok(results);
+    }
+
+    private BulkResult<Product> applyBulk(BulkOperation<Product> operation) {
+        // A null in the array fails on its own, like any other malformed operation
+        if (operation == null) {
+            return BulkResult.failure(null, null, 400, "Missing operation");
+        }
+        String op = operation.getOp();
+        Long id = operation.getId();
+        Product data = operation.getData();
+        if (BulkOperation.CREATE.equals(op)) {
+            return BulkResult.failure(op, id, 400, "Missing data");
+        }
+        if (!BulkOperation.UPDATE.equals(op) && !BulkOperation.PATCH.equals(op) && !BulkOperation.DELETE.equals(op)) {
+            return BulkResult.failure(op, id, 400, "Unknown op: " + op);
+        }
+        if (id == null) {
+            return BulkResult.failure(op, null, 400, "Missing id");
+        }
+        if (BulkOperation.DELETE.equals(op)) {
+            return productRepository.deleteById(id)
+                    ? BulkResult.success(op, id, 204, null)
+                    : BulkResult.failure(op, id, 404, "Product not found");
+        }
+        if (data == null) {
+            return BulkResult.failure(op, id, 400, "Missing data");
+        }
+        return productRepository.update(id, product -> BulkOperation.UPDATE.equals(op)
+                        ? replaceFields(product, data)
+                        : patchFields(product, data))
+                .map(product -> BulkResult.success(op, id, 200, product))
+                .orElse(BulkResult.failure(op, id, 404, "Product not found"));
+    }
+
+    /**
+     * Applies {@code change} only if the product is still at the version named by {@code If-Match}
+     * (any version when the header is absent) and answers {@code 412} otherwise. The updated
+     * product is sent in the format the client accepts, under that format's tag.
+     */
+    private ResponseEntity<byte[]> conditionalUpdate(Long id, String ifMatch, WebRequest request,
+                                                     UnaryOperator<Product> change) {
+        Long expectedVersion = responseCache.expectedVersion(ifMatch, RESOURCE, id);
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        try {
+            return productRepository.update(id, expectedVersion, change)
+                    .map(product -> ResponseCache.toResponse(ResponseCache.render(format, ResponseEntity.ok(product)),
+                            responseCache.recordTag(RESOURCE, id, product.getVersion(), format)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+    }
+
+    private static boolean isCreate(BulkOperation<Product> operation) {
+        return operation != null && BulkOperation.CREATE.equals(operation.getOp()) && operation.getData() != null;
+    }
+
+    private static Product replaceFields(Product product, Product source) {
+        product.setName(source.getName());
+        product.setDescription(source.getDescription());
+        product.setPrice(source.getPrice());
+        product.setCategory(source.getCategory());
+        product.setQuantity(source.getQuantity());
+        return product;
+    }
+
+    private static Product patchFields(Product product, Product updates) {
+        if (updates.getName() != null) product.setName(updates.getName());
+        if (updates.getDescription() != null) product.setDescription(updates.getDescription());
+        if (updates.getPrice() != null) product.setPrice(updates.getPrice());
+        if (updates.getCategory() != null) product.setCategory(updates.getCategory());
+        return product;
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.karate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Conditional request support and a bounded LRU cache of serialised responses for the read
+ * endpoints.
+ *
+ * ETags are derived from the store versions, so checking {@code If-None-Match} costs one
+ * comparison. They also carry an epoch taken at startup, because versions start again from
+ * scratch when the in-memory stores are rebuilt.
+ *
+ * Cached bodies are keyed by resource, query and collection version. A write bumps the version,
+ * so stale entries are never served; they simply stop being asked for and age out. Callers put
+ * the negotiated {@link ResponseFormats.Format} in the query, so each encoding is cached on its own.
+ */
+@Component
+class ResponseCache {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    ResponseCache(@Value("${sandbox.http-cache.max-size:8MB}") DataSize maxSize) {
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    /**
+     * A rendered response: the encoded body and the headers it was produced with, content type
+     * included.
+     */
+    record Entry(byte[] body, HttpHeaders headers) {}
+
+    private record Key(String resource, long version, List<Object> query) {}
+
+    /**
+     * Weak ETag for a whole collection at {@code version}, in {@code format}. Weak because the
+     * bytes also depend on whether the server compresses them, and Tomcat leaves responses with
+     * strong tags uncompressed; {@code If-None-Match} compares weakly either way.
+     */
+    String collectionTag(String resource, long version, ResponseFormats.Format format) {
+        return "W/\"" + epoch + '-' + resource + '-' + version + format.tagSuffix() + '"';
+    }
+
+    /**
+     * Strong ETag for one record at {@code version}, in {@code format}. Each encoding gets its own
+     * tag, since a strong tag promises the same bytes.
+     */
+    String recordTag(String resource, Long id, long version, ResponseFormats.Format format) {
+        return '"' + epoch + '-' + resource + '-' + id + '-' + version + format.tagSuffix() + '"';
+    }
+
+    /**
+     * Returns the record version an {@code If-Match} header asks for: {@code null} when there is
+     * no condition ({@code null} or {@code *}), or {@code 0}, which no record ever has, when it
+     * lists none of the current {@link #recordTag} values for this record. A tag in any format
+     * names the version, so a client may update with the tag it read in Smile or CBOR.
+     */
+    Long expectedVersion(String ifMatch, String resource, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = '"' + epoch + '-' + resource + '-' + id + '-';
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            // Weak tags never match under If-Match's strong comparison
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                String version = tag.substring(prefix.length(), tag.length() - 1);
+                int suffix = version.indexOf('+');
+                try {
+                    return Long.parseLong(suffix < 0 ? version : version.substring(0, suffix));
+                } catch (NumberFormatException e) {
+                    // Not one of ours; try the next tag
+                }
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the cached response for {@code resource} and {@code query} at {@code version}, or
+     * renders it with {@code render} and caches it. Rendering happens outside the lock, so a
+     * slow miss does not hold up hits.
+     */
+    Entry get(String resource, long version, Supplier<Entry> render, Object... query) {
+        Key key = new Key(resource, version, Arrays.asList(query));
+        lock.lock();
+        try {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Entry rendered = render.get();
+        int size = rendered.body().length;
+        // A single oversized listing would otherwise evict everything else
+        if (size > maxBytes / 4) {
+            return rendered;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, rendered);
+            bytes += size - (previous == null ? 0 : previous.body().length);
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().body().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return rendered;
+    }
+
+    /**
+     * Serialises the body of {@code response} in {@code format}, keeping its headers.
+     */
+    static Entry render(ResponseFormats.Format format, ResponseEntity<?> response) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(response.getHeaders());
+            headers.setContentType(format.mediaType());
+            // The body depends on Accept, so shared caches must not hand one encoding to another client
+            headers.setVary(List.of(HttpHeaders.ACCEPT));
+            return new Entry(format.mapper().writeValueAsBytes(response.getBody()),
+                    HttpHeaders.readOnlyHttpHeaders(headers));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ResponseEntity<byte[]> toResponse(Entry entry, String etag) {
+        return ResponseEntity.ok()
+                .headers(entry.headers())
+                .eTag(etag)
+                .body(entry.body());
+    }
+
+    /**
+     * The {@code 304 Not Modified} answer for a request whose {@code If-None-Match} matched. It
+     * carries the {@code Vary} the full response would have.
+     */
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.karate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The encodings the pre-rendered read endpoints answer in: JSON, and Smile or CBOR for clients
+ * that ask for one in {@code Accept}. Endpoints that return objects get the same choice from
+ * Spring's own message converters.
+ *
+ * The binary mappers are copies of the JSON one, so all three share its modules and settings.
+ */
+final class ResponseFormats {
+
+    static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    /**
+     * One encoding: its media type, the mapper that writes it and the suffix that keeps its
+     * ETags apart from the other encodings of the same version.
+     */
+    record Format(MediaType mediaType, ObjectMapper mapper, String tagSuffix) {}
+
+    private final Format json;
+    private final List<Format> formats;
+
+    ResponseFormats(ObjectMapper objectMapper) {
+        json = new Format(MediaType.APPLICATION_JSON, objectMapper, "");
+        formats = List.of(json,
+                new Format(SMILE, objectMapper.copyWith(new SmileFactory()), "+smile"),
+                new Format(CBOR, objectMapper.copyWith(new CBORFactory()), "+cbor"));
+    }
+
+    Format json() {
+        return json;
+    }
+
+    /**
+     * Returns the most preferred format {@code request} accepts, by quality and then in the
+     * client's order; a wildcard prefers JSON. JSON is also the answer to a missing, malformed or
+     * unsatisfiable {@code Accept}, as it was before the binary formats existed.
+     */
+    Format negotiate(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return json;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return json;
+        }
+        // Stable, so equally weighted types keep the client's order
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                break;
+            }
+            for (Format format : formats) {
+                if (type.includes(format.mediaType())) {
+                    return format;
+                }
+            }
+        }
+        return json;
+    }
+}
@@ -1,35 +1,35 @@
 package com.example.karate.controller;
 
 import com.example.karate.model.TokenRequest;
+import com.example.karate.token.JwtCodec;
+import com.example.karate.token.RevocationList;
+import com.example.karate.token.TokenCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/token")
 public class TokenController {
 
+    private final JwtCodec jwtCodec;
+    private final TokenCache tokenCache;
+    private final RevocationList revocationList;
+
+    public TokenController(JwtCodec jwtCodec, TokenCache tokenCache, RevocationList revocationList) {
+        this.jwtCodec = jwtCodec;
+        this.tokenCache = tokenCache;
+        this.revocationList = revocationList;
+    }
+
     @PostMapping("/generate")
     public ResponseEntity<Map<String, String>> generateToken(@RequestBody TokenRequest request) {
-        
-        // Generate a mock JWT token
-        String header = Base64.getEncoder().encodeToString("{\"typ\":\"JWT\",\"alg\":\"HS256\"}".getBytes());
-        String payload = Base64.getEncoder().encodeToString(
-            String.format("{\"sub\":\"karate-test\",\"iat\":%d,\"exp\":%d}", 
-                System.currentTimeMillis()/1000, (System.currentTimeMillis()/1000) + 3600)
-            .getBytes());
-        String signature = Base64.getEncoder().encodeToString(UUID.randomUUID().toString().getBytes());
-        
-        String jwtToken = String.format("%s.%s.%s", header, payload, signature);
-        
         // Return simple JSON with just the required key-value pair
         Map<String, String> response = new HashMap<>();
-        response.put("iam-claimsetjwt", jwtToken);
-        
+        response.put("iam-claimsetjwt", jwtCodec.issue());
+
         return ResponseEntity.ok(response);
     }
 
@@ -43,78 +43,88 @@ public class TokenController {
 
     @PostMapping("/validate-auth-header")
     public ResponseEntity<Map<String, Object>> validateAuthHeader(@RequestHeader(value = "iam-claimsetjwt", required = false) String jwtToken) {
-        Map<String, Object> response = new HashMap<>();
-        
         if (jwtToken == null || jwtToken.trim().isEmpty()) {
-            response.put("valid", false);
-            response.put("error", "Missing JWT token in iam-claimsetjwt header");
-            response.put("status", "UNAUTHORIZED");
-            return ResponseEntity.status(401).body(response);
+            return invalid(401, "Missing JWT token in iam-claimsetjwt header", "UNAUTHORIZED");
         }
-        
-        try {
-            // Basic JWT structure validation
-            String[] parts = jwtToken.split("\\.");
-            if (parts.length != 3) {
-                response.put("valid", false);
-                response.put("error", "Invalid JWT structure - expected 3 parts");
-                response.put("status", "INVALID_TOKEN");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            // Decode and validate header
-            String headerJson = new String(Base64.getDecoder().decode(parts[0]));
-            if (!headerJson.contains("\"typ\":\"JWT\"") || !headerJson.contains("\"alg\":")) {
-                response.put("valid", false);
-                response.put("error", "Invalid JWT header");
-                response.put("status", "INVALID_HEADER");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            // Decode and validate payload
-            String payloadJson = new String(Base64.getDecoder().decode(parts[1]));
-            if (!payloadJson.contains("\"sub\"") || !payloadJson.contains("\"iat\"") || !payloadJson.contains("\"exp\"")) {
-                response.put("valid", false);
-                response.put("error", "Invalid JWT payload - missing required claims");
-                response.put("status", "INVALID_PAYLOAD");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            // Check if token is expired
-            long currentTime = System.currentTimeMillis() / 1000;
-            if (payloadJson.contains("\"exp\":")) {
-                try {
-                    String expStr = payloadJson.split("\"exp\":")[1].split("}")[0];
-                    long expTime = Long.parseLong(expStr);
-                    if (currentTime > expTime) {
-                        response.put("valid", false);
-                        response.put("error", "JWT token has expired");
-                        response.put("status", "EXPIRED");
-                        return ResponseEntity.status(401).body(response);
-                    }
-                } catch (Exception e) {
-                    // If we can't parse the expiration, we'll assume it's valid for now
-                    // In a real implementation, you might want to be more strict
-                }
-            }
-            
-            // Token is valid
-            response.put("valid", true);
-            response.put("message", "JWT token is valid");
-            response.put("status", "VALID");
-            response.put("tokenInfo", Map.of(
-                "header", headerJson,
-                "payload", payloadJson,
-                "signature", parts[2]
+
+        if (revocationList.isRevoked(jwtToken)) {
+            return invalid(401, "JWT token has been revoked", "REVOKED");
+        }
+        Map<String, Object> cached = tokenCache.get(jwtToken);
+        if (cached != null) {
+            return ResponseEntity.ok(cached);
+        }
+
+        ResponseEntity<Map<String, Object>> rejection = verify(jwtToken);
+        if (rejection != null) {
+            return rejection;
+        }
+        Map<String, Object> response = Map.of(
+            "valid", true,
+            "message", "JWT token is valid",
+            "status", "VALID",
+            "tokenInfo", Map.of(
+                "header", jwtCodec.decodeSegment(jwtToken, 0),
+                "payload", jwtCodec.decodeSegment(jwtToken, 1),
+                "signature", jwtToken.substring(jwtToken.lastIndexOf('.') + 1)
             ));
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("valid", false);
-            response.put("error", "Failed to validate JWT token: " + e.getMessage());
-            response.put("status", "VALIDATION_ERROR");
-            return ResponseEntity.badRequest().body(response);
+        tokenCache.put(jwtToken, jwtCodec.expiresAt(jwtToken), response);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/revoke")
+    public ResponseEntity<Map<String, Object>> revokeToken(@RequestHeader(value = "iam-claimsetjwt", required = false) String jwtToken) {
+        if (jwtToken == null || jwtToken.trim().isEmpty()) {
+            return invalid(401, "Missing JWT token in iam-claimsetjwt header", "UNAUTHORIZED");
+        }
+        // Only tokens we issued can be revoked; anything else is already rejected
+        if (!revocationList.isRevoked(jwtToken)) {
+            ResponseEntity<Map<String, Object>> rejection = verify(jwtToken);
+            if (rejection != null) {
+                return rejection;
+            }
+            revocationList.revoke(jwtToken, jwtCodec.expiresAt(jwtToken));
+            tokenCache.invalidate(jwtToken);
         }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("revoked", true);
+        response.put("status", "REVOKED");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        TokenCache.Stats stats = tokenCache.stats();
+        Map<String, Object> response = new HashMap<>();
+        response.put("hits", stats.hits());
+        response.put("misses", stats.misses());
+        response.put("size", stats.size());
+        response.put("revoked", revocationList.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Returns the error response for a token that fails verification, or {@code null} if it is
+     * valid. The codec stops at the first failed check, so only well-formed, unexpired tokens
+     * are hashed.
+     */
+    private ResponseEntity<Map<String, Object>> verify(String jwtToken) {
+        return switch (jwtCodec.verify(jwtToken)) {
+            case INVALID_TOKEN -> invalid(400, "Invalid JWT structure - expected 3 parts", "INVALID_TOKEN");
+            case INVALID_HEADER -> invalid(400, "Invalid JWT header", "INVALID_HEADER");
+            case INVALID_PAYLOAD -> invalid(400, "Invalid JWT payload - missing required claims", "INVALID_PAYLOAD");
+            case EXPIRED -> invalid(401, "JWT token has expired", "EXPIRED");
+            case INVALID_SIGNATURE -> invalid(401, "Invalid JWT signature", "INVALID_SIGNATURE");
+            case VALID -> null;
+        };
+    }
+
+    private static ResponseEntity<Map<String, Object>> invalid(int status, String error, String code) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("valid", false);
+        response.put("error", error);
+        response.put("status", code);
+        return ResponseEntity.status(status).body(response);
     }
-}
\ No newline at end of file
+}
@@ -1,107 +1,258 @@
 package com.example.karate.controller;
 
+import com.example.karate.model.BulkOperation;
+import com.example.karate.model.BulkResult;
 import com.example.karate.model.User;
+import com.example.karate.repository.UserRepository;
+import com.example.karate.repository.VersionConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
-    private List<User> users = new ArrayList<>();
-    private Long nextId = 1L;
+    private static final String RESOURCE = "users";
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final ResponseFormats responseFormats;
+
+    public UserController(UserRepository userRepository, ObjectMapper objectMapper, ResponseCache responseCache) {
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.responseFormats = new ResponseFormats(objectMapper);
 
-    public UserController() {
         // Initialise with some dummy data
-        users.add(new User(nextId++, "John Doe", "john.doe@example.com", "admin", true));
-        users.add(new User(nextId++, "Jane Smith", "jane.smith@example.com", "user", true));
-        users.add(new User(nextId++, "Bob Johnson", "bob.johnson@example.com", "user", false));
+        userRepository.create(new User(null, "John Doe", "john.doe@example.com", "admin", true));
+        userRepository.create(new User(null, "Jane Smith", "jane.smith@example.com", "user", true));
+        userRepository.create(new User(null, "Bob Johnson", "bob.johnson@example.com", "user", false));
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers(
+    public ResponseEntity<byte[]> getAllUsers(
             @RequestParam(required = false) String role,
             @RequestParam(required = false) Boolean active,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
 
-        List<User> filteredUsers = users.stream()
-                .filter(user -> role == null || user.getRole().equals(role))
-                .filter(user -> active == null || user.isActive() == active)
-                .skip((long) page * size)
-                .limit(size)
-                .toList();
+        Long afterId;
+        try {
+            afterId = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        long version = userRepository.version();
+        String etag = responseCache.collectionTag(RESOURCE, version, format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
 
-        return ResponseEntity.ok(filteredUsers);
+        ResponseCache.Entry listing = responseCache.get(RESOURCE, version, () -> {
+            // A cursor takes precedence over page, which is kept for existing clients
+            Stream<User> filteredUsers = userRepository.find(role, active, afterId);
+            if (afterId == null) {
+                filteredUsers = filteredUsers.skip((long) page * size);
+            }
+            return ResponseCache.render(format, PageCursor.page(filteredUsers, size, User::getId));
+        }, role, active, page, size, afterId, format);
+        return ResponseCache.toResponse(listing, etag);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        Optional<User> user = users.stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
-
-        return user.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getUserById(@PathVariable Long id, WebRequest request) {
+        Optional<User> user = userRepository.findById(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        String etag = responseCache.recordTag(RESOURCE, id, user.get().getVersion(), format);
+        if (request.checkNotModified(etag)) {
+            return ResponseCache.notModified(etag);
+        }
+        return ResponseCache.toResponse(ResponseCache.render(format, ResponseEntity.ok(user.get())), etag);
     }
 
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
-        user.setId(nextId++);
-        users.add(user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(user);
+        return ResponseEntity.status(HttpStatus.CREATED).body(userRepository.create(user));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
-        Optional<User> existingUser = users.stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
-
-        if (existingUser.isPresent()) {
-            User user = existingUser.get();
-            user.setName(updatedUser.getName());
-            user.setEmail(updatedUser.getEmail());
-            user.setRole(updatedUser.getRole());
-            user.setActive(updatedUser.isActive());
-            return ResponseEntity.ok(user);
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> updateUser(
+            @PathVariable Long id,
+            @RequestBody User updatedUser,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest request) {
+        return conditionalUpdate(id, ifMatch, request, user -> replaceFields(user, updatedUser));
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<User> partialUpdateUser(@PathVariable Long id, @RequestBody User updates) {
-        Optional<User> existingUser = users.stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
-
-        if (existingUser.isPresent()) {
-            User user = existingUser.get();
-            if (updates.getName() != null) user.setName(updates.getName());
-            if (updates.getEmail() != null) user.setEmail(updates.getEmail());
-            if (updates.getRole() != null) user.setRole(updates.getRole());
-            return ResponseEntity.ok(user);
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> partialUpdateUser(
+            @PathVariable Long id,
+            @RequestBody User updates,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest request) {
+        return conditionalUpdate(id, ifMatch, request, user -> patchFields(user, updates));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        boolean removed = users.removeIf(user -> user.getId().equals(id));
+        boolean removed = userRepository.deleteById(id);
         return removed ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam String query) {
-        List<User> results = users.stream()
-                .filter(user -> user.getName().toLowerCase().contains(query.toLowerCase()) ||
-                        user.getEmail().toLowerCase().contains(query.toLowerCase()))
-                .toList();
+    public ResponseEntity<List<User>> searchUsers(
+            @RequestParam String query,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset) {
+
+        if (offset < 0 || (limit != null && limit < 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Stream<User> results = userRepository.search(query).skip(offset);
+        if (limit != null) {
+            results = results.limit(limit);
+        }
+        return ResponseEntity.ok(results.toList());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(Ndjson.MEDIA_TYPE))
+                .body(Ndjson.export(objectMapper, User.class, userRepository.findAll()));
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importUsers(InputStream body) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("imported", Ndjson.importRecords(objectMapper, User.class, body, userRepository::createAll));
+            return ResponseEntity.ok(response);
+        } catch (Ndjson.ImportException e) {
+            response.put("imported", e.getImported());
+            response.put("error", "Invalid NDJSON record: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PostMapping("/_bulk")
+    public ResponseEntity<List<BulkResult<User>>> bulkUsers(@RequestBody List<BulkOperation<User>> operations) {
+        // Reserve ids for every create up front with a single atomic step
+        int creates = (int) operations.stream().filter(UserController::isCreate).count();
+        long firstId = userRepository.allocateIds(creates);
+
+        List<BulkResult<User>> results = userRepository.inBatch(() -> {
+            List<BulkResult<User>> applied = new ArrayList<>(operations.size());
+            long nextId = firstId;
+            for (BulkOperation<User> operation : operations) {
+                if (isCreate(operation)) {
+                    User user = operation.getData();
+                    user.setId(nextId++);
+                    // As in create: a client-supplied version must not become the If-Match baseline
+                    user.setVersion(0);
+                    applied.add(BulkResult.success(BulkOperation.CREATE, user.getId(), 201, userRepository.insert(user)));
+                } else {
+                    applied.add(applyBulk(operation));
+                }
+            }
+            return applied;
+        });
         return ResponseEntity.ok(results);
     }
+
+    private BulkResult<User> applyBulk(BulkOperation<User> operation) {
+        // A null in the array fails on its own, like any other malformed operation
+        if (operation == null) {
+            return BulkResult.failure(null, null, 400, "Missing operation");
+        }
+        String op = operation.getOp();
+        Long id = operation.getId();
+        User data = operation.getData();
+        if (BulkOperation.CREATE.equals(op)) {
+            return BulkResult.failure(op, id, 400, "Missing data");
+        }
+        if (!BulkOperation.UPDATE.equals(op) && !BulkOperation.PATCH.equals(op) && !BulkOperation.DELETE.equals(op)) {
+            return BulkResult.failure(op, id, 400, "Unknown op: " + op);
+        }
+        if (id == null) {
+            return BulkResult.failure(op, null, 400, "Missing id");
+        }
+        if (BulkOperation.DELETE.equals(op)) {
+            return userRepository.deleteById(id)
+                    ? BulkResult.success(op, id, 204, null)
+                    : BulkResult.failure(op, id, 404, "User not found");
+        }
+        if (data == null) {
+            return BulkResult.failure(op, id, 400, "Missing data");
+        }
+        return userRepository.update(id, user -> BulkOperation.UPDATE.equals(op)
+                        ? replaceFields(user, data)
+                        : patchFields(user, data))
+                .map(user -> BulkResult.success(op, id, 200, user))
+                .orElse(BulkResult.failure(op, id, 404, "User not found"));
+    }
+
+    /**
+     * Applies {@code change} only if the user is still at the version named by {@code If-Match}
+     * (any version when the header is absent) and answers {@code 412} otherwise. The updated
+     * user is sent in the format the client accepts, under that format's tag.
+     */
+    private ResponseEntity<byte[]> conditionalUpdate(Long id, String ifMatch, WebRequest request,
+                                                     UnaryOperator<User> change) {
+        Long expectedVersion = responseCache.expectedVersion(ifMatch, RESOURCE, id);
+        ResponseFormats.Format format = responseFormats.negotiate(request);
+        try {
+            return userRepository.update(id, expectedVersion, change)
+                    .map(user -> ResponseCache.toResponse(ResponseCache.render(format, ResponseEntity.ok(user)),
+                            responseCache.recordTag(RESOURCE, id, user.getVersion(), format)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+    }
+
+    private static boolean isCreate(BulkOperation<User> operation) {
+        return operation != null && BulkOperation.CREATE.equals(operation.getOp()) && operation.getData() != null;
+    }
+
+    private static User replaceFields(User user, User source) {
+        user.setName(source.getName());
+        user.setEmail(source.getEmail());
+        user.setRole(source.getRole());
+        user.setActive(source.isActive());
+        return user;
+    }
+
+    private static User patchFields(User user, User updates) {
+        if (updates.getName() != null) user.setName(updates.getName());
+        if (updates.getEmail() != null) user.setEmail(updates.getEmail());
+        if (updates.getRole() != null) user.setRole(updates.getRole());
+        return user;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,373 @@
+package com.example.karate.events;
+
+import com.example.karate.repository.ChangeEvent;
+import com.example.karate.repository.ChangeListener;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Server-sent events for every create, update and delete applied to the user and product
+ * repositories.
+ *
+ * The repository listeners only queue each change, so a write pays for one enqueue. A single
+ * dispatcher thread numbers the changes in commit order, renders each one once as an SSE frame
+ * and adds it to an {@link EventRing} of recent events. Every subscription keeps its own cursor
+ * into the ring and is drained by its own delivery task, so all subscribers are sent the same
+ * frame bytes and a slow one holds up neither the writers nor the other subscribers.
+ *
+ * A subscription that falls a full ring behind, or resumes from an id the ring no longer holds,
+ * is sent a {@code reset} event and carries on from the newest event; the client is expected to
+ * reload from the listing endpoints. Event ids carry an epoch taken at startup, as the HTTP
+ * ETags do, because numbering starts again when the process restarts.
+ *
+ * Listeners are registered when the context starts, after persistence has replayed its log and
+ * registered its own, so restored records are not announced and a write the log rejects never
+ * reaches a subscriber.
+ *
+ * Repositories announce a change before they apply it, so a change is queued uncommitted and
+ * only marked committed by the writer's {@code afterCommit}. The dispatcher stops at the first
+ * uncommitted change, however it was woken, so by the time a client receives an event the record
+ * it describes can be read back from the repository.
+ */
+public class ChangeStream implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStream.class);
+
+    public static final String PRODUCTS = "products";
+    public static final String USERS = "users";
+
+    /** Frames handed to a sink at a time. */
+    static final int BATCH_SIZE = 64;
+
+    static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Receives the frames of one subscription, in order. At most one call is in progress per
+     * subscription; an exception ends the subscription.
+     */
+    public interface Sink {
+
+        void send(List<byte[]> frames) throws IOException;
+
+        /**
+         * Called when the stream shuts down.
+         */
+        default void close() {}
+    }
+
+    private static final class Pending {
+        private final String resource;
+        private final ChangeEvent<?> event;
+        private volatile boolean committed;
+
+        private Pending(String resource, ChangeEvent<?> event) {
+            this.resource = resource;
+            this.event = event;
+        }
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ObjectMapper objectMapper;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final long heartbeatNanos;
+    private final EventRing ring;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private volatile Thread dispatcher;
+    private ExecutorService delivery;
+    private boolean listening;
+
+    public ChangeStream(int bufferSize, Duration heartbeat, ObjectMapper objectMapper,
+                        ProductRepository productRepository, UserRepository userRepository) {
+        this.ring = new EventRing(bufferSize);
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.objectMapper = objectMapper;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Subscribes {@code sink} to the events of {@code resource}, or of every resource when it
+     * is {@code null}. With a {@code lastEventId} the events after it that the ring still holds
+     * are sent first; without one, only events from now on.
+     */
+    public Subscription subscribe(String resource, String lastEventId, Sink sink) {
+        if (!running) {
+            throw new IllegalStateException("Change stream is not running");
+        }
+        Subscription subscription = new Subscription(resource, sink);
+        long head = ring.head();
+        Long resumeAfter = sequence(lastEventId);
+        if (lastEventId == null) {
+            subscription.cursor = head;
+        } else if (resumeAfter != null && resumeAfter <= head && resumeAfter >= ring.oldest() - 1) {
+            subscription.cursor = resumeAfter;
+        } else {
+            subscription.cursor = head;
+            subscription.resetDue = true;
+        }
+        subscriptions.add(subscription);
+        subscription.schedule(false);
+        return subscription;
+    }
+
+    /**
+     * Returns the id of the newest event, which a client can resume after.
+     */
+    public String lastEventId() {
+        return eventId(ring.head());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        delivery = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-stream-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        Thread thread = new Thread(this::dispatch, "change-stream-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+        if (!listening) {
+            productRepository.addListener(new Listener<>(PRODUCTS));
+            userRepository.addListener(new Listener<>(USERS));
+            listening = true;
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(dispatcher);
+        delivery.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+            subscription.sink.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private final class Listener<T> implements ChangeListener<T> {
+        private final String resource;
+        // Changes this thread has queued since it took the write lock; a batch commits them together
+        private final ThreadLocal<List<Pending>> uncommitted = ThreadLocal.withInitial(ArrayList::new);
+
+        Listener(String resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public void onChange(ChangeEvent<T> event) {
+            if (running) {
+                Pending change = new Pending(resource, event);
+                uncommitted.get().add(change);
+                pending.add(change);
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            List<Pending> changes = uncommitted.get();
+            if (changes.isEmpty()) {
+                return;
+            }
+            for (Pending change : changes) {
+                change.committed = true;
+            }
+            changes.clear();
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private void dispatch() {
+        long nextHeartbeat = System.nanoTime() + heartbeatNanos;
+        while (running) {
+            boolean published = false;
+            Pending next;
+            // The queue is in commit order, so nothing behind an uncommitted change may go first
+            while ((next = pending.peek()) != null && next.committed) {
+                pending.poll();
+                long sequence = ring.head() + 1;
+                try {
+                    ring.add(new EventRing.Frame(sequence, next.resource, render(sequence, next)));
+                    published = true;
+                } catch (RuntimeException e) {
+                    log.error("Dropped {} event for {} {}", next.event.type(), next.resource, next.event.id(), e);
+                }
+            }
+            boolean heartbeat = heartbeatNanos > 0 && System.nanoTime() - nextHeartbeat >= 0;
+            if (heartbeat) {
+                nextHeartbeat = System.nanoTime() + heartbeatNanos;
+            }
+            if (published || heartbeat) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.schedule(heartbeat);
+                }
+            }
+            if (heartbeatNanos > 0) {
+                LockSupport.parkNanos(this, Math.max(0, nextHeartbeat - System.nanoTime()));
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private byte[] render(long sequence, Pending pending) {
+        try {
+            ChangeEvent<?> event = pending.event;
+            // Compact JSON has no line breaks, so the record fits on one data line
+            return ("id: " + eventId(sequence) + "\nevent: " + pending.resource + '.'
+                    + event.type().name().toLowerCase(Locale.ROOT) + "\ndata: "
+                    + objectMapper.writeValueAsString(event.value()) + "\n\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] reset(long sequence) {
+        // Carries the newest id, so a client that reloads and then reconnects resumes from there
+        return ("id: " + eventId(sequence) + "\nevent: reset\ndata: {}\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String eventId(long sequence) {
+        return epoch + '-' + sequence;
+    }
+
+    /**
+     * Returns the sequence in one of this process's event ids, or {@code null} for any other id.
+     */
+    private Long sequence(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + '-')) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One subscriber's position in the stream.
+     */
+    public final class Subscription {
+        private final String resource;
+        private final Sink sink;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // Set by subscribe() and afterwards only by the delivery task, which the scheduled flag keeps
+        // to one at a time; volatile because successive tasks, and drain()'s check, may run on
+        // different threads
+        private volatile long cursor;
+        private volatile boolean resetDue;
+
+        private Subscription(String resource, Sink sink) {
+            this.resource = resource;
+            this.sink = sink;
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+
+        private void schedule(boolean heartbeat) {
+            if (heartbeat) {
+                heartbeatDue = true;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                deliver();
+            } catch (IOException | RuntimeException e) {
+                // The client went away; the container completes the response
+                cancel();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // Events published while this task was sending would otherwise wait for the next write
+            if (cursor < ring.head() && subscriptions.contains(this)) {
+                schedule(false);
+            }
+        }
+
+        private void deliver() throws IOException {
+            List<byte[]> frames = new ArrayList<>();
+            long head = ring.head();
+            if (resetDue) {
+                frames.add(reset(head));
+                resetDue = false;
+            }
+            while (cursor < head) {
+                EventRing.Frame frame = ring.get(cursor + 1);
+                if (frame == null) {
+                    // Lapped by the writer while sending; the events in between are gone
+                    frames.add(reset(head));
+                    cursor = head;
+                    break;
+                }
+                cursor = frame.sequence();
+                if (resource == null || resource.equals(frame.resource())) {
+                    frames.add(frame.bytes());
+                    if (frames.size() == BATCH_SIZE) {
+                        sink.send(frames);
+                        frames = new ArrayList<>();
+                    }
+                }
+            }
+            if (frames.isEmpty() && heartbeatDue) {
+                frames.add(HEARTBEAT);
+            }
+            heartbeatDue = false;
+            if (!frames.isEmpty()) {
+                sink.send(frames);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.karate.events;
+
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EventProperties.class)
+public class EventConfiguration {
+
+    @Bean
+    public ChangeStream changeStream(EventProperties properties, ObjectMapper objectMapper,
+                                     ProductRepository productRepository, UserRepository userRepository) {
+        return new ChangeStream(properties.getBufferSize(), properties.getHeartbeat(), objectMapper,
+                productRepository, userRepository);
+    }
+}
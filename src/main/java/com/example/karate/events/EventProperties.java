@@ -0,0 +1,29 @@
+package com.example.karate.events;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the change-event stream, bound from {@code sandbox.events.*}.
+ */
+@ConfigurationProperties(prefix = "sandbox.events")
+public class EventProperties {
+
+    /** Recent events kept for subscribers that resume with {@code Last-Event-ID}. */
+    private int bufferSize = 4096;
+    /** How long a stream stays open; clients reconnect and resume after it. */
+    private Duration timeout = Duration.ofMinutes(30);
+    /** Interval of comment frames on idle streams; zero disables them. */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    // Getters and setters
+    public int getBufferSize() { return bufferSize; }
+    public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+    public Duration getHeartbeat() { return heartbeat; }
+    public void setHeartbeat(Duration heartbeat) { this.heartbeat = heartbeat; }
+}
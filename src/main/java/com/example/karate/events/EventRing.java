@@ -0,0 +1,68 @@
+package com.example.karate.events;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent rendered events, numbered from 1.
+ *
+ * There is one writer, the {@link ChangeStream} dispatcher, and any number of lock-free readers.
+ * Each slot remembers the sequence it holds, so a reader that has fallen a full lap behind gets
+ * {@code null} instead of a newer frame.
+ */
+final class EventRing {
+
+    /**
+     * One event: its sequence, the resource it belongs to and the SSE frame every subscriber is
+     * sent.
+     */
+    record Frame(long sequence, String resource, byte[] bytes) {}
+
+    private final AtomicReferenceArray<Frame> slots;
+    private volatile long head;
+
+    EventRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Returns the sequence of the newest frame, or 0 before the first.
+     */
+    long head() {
+        return head;
+    }
+
+    /**
+     * Returns the sequence of the oldest frame still held.
+     */
+    long oldest() {
+        return Math.max(1, head - slots.length() + 1);
+    }
+
+    /**
+     * Adds the frame numbered {@code head() + 1}, overwriting the oldest once the ring is full.
+     * Only the single writer may call this.
+     */
+    void add(Frame frame) {
+        if (frame.sequence() != head + 1) {
+            throw new IllegalArgumentException("Expected sequence " + (head + 1) + ", got " + frame.sequence());
+        }
+        slots.set(index(frame.sequence()), frame);
+        head = frame.sequence();
+    }
+
+    /**
+     * Returns frame {@code sequence}, or {@code null} if it has not been added yet or has already
+     * been overwritten.
+     */
+    Frame get(long sequence) {
+        Frame frame = slots.get(index(sequence));
+        return frame != null && frame.sequence() == sequence ? frame : null;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+}
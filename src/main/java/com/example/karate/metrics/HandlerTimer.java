@@ -0,0 +1,61 @@
+package com.example.karate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every controller handler method as {@code sandbox.handler}, tagged with the controller
+ * and method name. The timers publish percentile histograms, so p95 or p99 per handler can be
+ * computed from the Prometheus buckets; {@code /actuator/metrics} shows count, total and max.
+ *
+ * The time runs from the handler being picked to the request completing, so it includes
+ * response serialisation. For async handlers it ends when the async part completes.
+ */
+class HandlerTimer implements HandlerInterceptor {
+
+    static final String METRIC = "sandbox.handler";
+
+    private static final String START = HandlerTimer.class.getName() + ".start";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    HandlerTimer(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async dispatch passes through again; keep the original start
+        if (handler instanceof HandlerMethod && request.getAttribute(START) == null) {
+            request.setAttribute(START, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (handler instanceof HandlerMethod method && request.getAttribute(START) instanceof Long start) {
+            timers.computeIfAbsent(method.getMethod(), key -> timer(method))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(HandlerMethod method) {
+        return Timer.builder(METRIC)
+                .description("Controller handler time, including response serialisation")
+                .tag("controller", method.getBeanType().getSimpleName())
+                .tag("method", method.getMethod().getName())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.karate.metrics;
+
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.example.karate.token.RevocationList;
+import com.example.karate.token.TokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public MetricsConfiguration(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Bean
+    public MeterBinder storeMetrics(ProductRepository productRepository, UserRepository userRepository,
+                                    TokenCache tokenCache, RevocationList revocationList) {
+        return new StoreMetrics(productRepository, userRepository, tokenCache, revocationList);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerTimer(this.registry.getObject()));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.karate.metrics;
+
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.ScanStats;
+import com.example.karate.repository.UserRepository;
+import com.example.karate.token.RevocationList;
+import com.example.karate.token.TokenCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Sizes of the in-memory stores, their indexes and the token caches, and the scan counters of
+ * the repository query paths. All of them are read from the components when a registry polls,
+ * so nothing is recorded on the request path.
+ *
+ * {@code sandbox.scan.records / sandbox.scan.queries} for a path is its mean scan length; a
+ * path whose ratio grows with {@code sandbox.store.size} is not being served by an index.
+ */
+class StoreMetrics implements MeterBinder {
+
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TokenCache tokenCache;
+    private final RevocationList revocationList;
+
+    StoreMetrics(ProductRepository productRepository, UserRepository userRepository,
+                 TokenCache tokenCache, RevocationList revocationList) {
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        storeSize(registry, "products", productRepository, ProductRepository::size);
+        storeSize(registry, "users", userRepository, UserRepository::size);
+
+        indexSize(registry, "products", "category", productRepository, ProductRepository::categoryIndexSize);
+        indexSize(registry, "products", "price", productRepository, ProductRepository::priceIndexSize);
+        indexSize(registry, "users", "trigram", userRepository, UserRepository::trigramIndexSize);
+
+        scans(registry, "products", "filter", productRepository.filterScans());
+        scans(registry, "users", "filter", userRepository.filterScans());
+        scans(registry, "users", "search", userRepository.searchScans());
+
+        FunctionCounter.builder("sandbox.token.cache.requests", tokenCache, cache -> cache.stats().hits())
+                .description("Token validations answered from the verified-token cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("sandbox.token.cache.requests", tokenCache, cache -> cache.stats().misses())
+                .description("Token validations answered from the verified-token cache")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("sandbox.token.cache.size", tokenCache, cache -> cache.stats().size())
+                .description("Verified tokens held in the cache")
+                .register(registry);
+        Gauge.builder("sandbox.token.revoked", revocationList, RevocationList::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+    }
+
+    private static <T> void storeSize(MeterRegistry registry, String store, T repository, ToDoubleFunction<T> size) {
+        Gauge.builder("sandbox.store.size", repository, size)
+                .description("Records in the store")
+                .tag("store", store)
+                .register(registry);
+    }
+
+    private static <T> void indexSize(MeterRegistry registry, String store, String index, T repository,
+                                      ToDoubleFunction<T> size) {
+        Gauge.builder("sandbox.index.size", repository, size)
+                .description("Distinct keys in the index")
+                .tag("store", store)
+                .tag("index", index)
+                .register(registry);
+    }
+
+    private static void scans(MeterRegistry registry, String store, String path, ScanStats stats) {
+        FunctionCounter.builder("sandbox.scan.queries", stats, ScanStats::queries)
+                .description("Repository queries run")
+                .tag("store", store)
+                .tag("path", path)
+                .register(registry);
+        FunctionCounter.builder("sandbox.scan.records", stats, ScanStats::scanned)
+                .description("Records examined by repository queries, including rejected ones")
+                .tag("store", store)
+                .tag("path", path)
+                .register(registry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.karate.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One entry of a {@code _bulk} request: {@code op} is one of {@code create}, {@code update},
+ * {@code patch} or {@code delete}; {@code id} addresses the record for everything but create and
+ * {@code data} carries the record for everything but delete.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkOperation<T> {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String PATCH = "patch";
+    public static final String DELETE = "delete";
+
+    private String op;
+    private Long id;
+    private T data;
+
+    public BulkOperation() {}
+
+    public BulkOperation(String op, Long id, T data) {
+        this.op = op;
+        this.id = id;
+        this.data = data;
+    }
+
+    // Getters and setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public T getData() { return data; }
+    public void setData(T data) { this.data = data; }
+}
@@ -0,0 +1,50 @@
+package com.example.karate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one {@link BulkOperation}, reported at the same position as the operation.
+ * {@code status} uses the HTTP status the equivalent single-record call would have returned.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult<T> {
+    private String op;
+    private Long id;
+    private int status;
+    private T data;
+    private String error;
+
+    public BulkResult() {}
+
+    public BulkResult(String op, Long id, int status, T data, String error) {
+        this.op = op;
+        this.id = id;
+        this.status = status;
+        this.data = data;
+        this.error = error;
+    }
+
+    public static <T> BulkResult<T> success(String op, Long id, int status, T data) {
+        return new BulkResult<>(op, id, status, data, null);
+    }
+
+    public static <T> BulkResult<T> failure(String op, Long id, int status, String error) {
+        return new BulkResult<>(op, id, status, null, error);
+    }
+
+    // Getters and setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public int getStatus() { return status; }
+    public void setStatus(int status) { this.status = status; }
+
+    public T getData() { return data; }
+    public void setData(T data) { this.data = data; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -11,9 +11,18 @@ public class Product {
     private BigDecimal price;
     private String category;
     private int quantity;
+    private long version;
 
     public Product() {}
 
+    /**
+     * Copies every field of {@code source}.
+     */
+    public Product(Product source) {
+        this(source.id, source.name, source.description, source.price, source.category, source.quantity);
+        this.version = source.version;
+    }
+
     public Product(Long id, String name, String description, BigDecimal price, String category, int quantity) {
         this.id = id;
         this.name = name;
@@ -42,6 +51,9 @@ public class Product {
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -51,6 +63,7 @@ public class Product {
                 ", price=" + price +
                 ", category='" + category + '\'' +
                 ", quantity=" + quantity +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
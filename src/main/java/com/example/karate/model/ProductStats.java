@@ -0,0 +1,11 @@
+package com.example.karate.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates over a set of products. Prices are taken over the products that have one and are
+ * {@code null} when none has; {@code inventoryValue} is the sum of price times quantity.
+ */
+public record ProductStats(long count, long totalQuantity, BigDecimal minPrice, BigDecimal maxPrice,
+                           BigDecimal averagePrice, BigDecimal inventoryValue) {
+}
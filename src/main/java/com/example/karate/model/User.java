@@ -9,9 +9,18 @@ public class User {
     private String email;
     private String role;
     private boolean active;
+    private long version;
 
     public User() {}
 
+    /**
+     * Copies every field of {@code source}.
+     */
+    public User(User source) {
+        this(source.id, source.name, source.email, source.role, source.active);
+        this.version = source.version;
+    }
+
     public User(Long id, String name, String email, String role, boolean active) {
         this.id = id;
         this.name = name;
@@ -36,6 +45,9 @@ public class User {
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     @Override
     public String toString() {
         return "User{" +
@@ -44,6 +56,7 @@ public class User {
                 ", email='" + email + '\'' +
                 ", role='" + role + '\'' +
                 ", active=" + active +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
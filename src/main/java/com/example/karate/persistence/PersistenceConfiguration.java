@@ -0,0 +1,21 @@
+package com.example.karate.persistence;
+
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sandbox.persistence", name = "enabled", havingValue = "true")
+    public StorePersistence storePersistence(PersistenceProperties properties, ObjectMapper objectMapper,
+                                             ProductRepository productRepository, UserRepository userRepository) {
+        return new StorePersistence(properties, objectMapper, productRepository, userRepository);
+    }
+}
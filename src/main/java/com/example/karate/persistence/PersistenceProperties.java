@@ -0,0 +1,48 @@
+package com.example.karate.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the optional write-ahead log and snapshots behind the in-memory stores,
+ * bound from {@code sandbox.persistence.*}.
+ */
+@ConfigurationProperties(prefix = "sandbox.persistence")
+public class PersistenceProperties {
+
+    /**
+     * When the log is forced to disk.
+     */
+    public enum FsyncPolicy {
+        /** Every acknowledged write is on disk; concurrent writers share one fsync (group commit). */
+        ALWAYS,
+        /** A background task forces the log every {@code fsync-interval}. */
+        INTERVAL,
+        /** Flushing is left to the operating system. */
+        NEVER
+    }
+
+    private boolean enabled = false;
+    private Path directory = Path.of("data");
+    private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+    private Duration fsyncInterval = Duration.ofMillis(50);
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    // Getters and setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Path getDirectory() { return directory; }
+    public void setDirectory(Path directory) { this.directory = directory; }
+
+    public FsyncPolicy getFsync() { return fsync; }
+    public void setFsync(FsyncPolicy fsync) { this.fsync = fsync; }
+
+    public Duration getFsyncInterval() { return fsyncInterval; }
+    public void setFsyncInterval(Duration fsyncInterval) { this.fsyncInterval = fsyncInterval; }
+
+    public Duration getSnapshotInterval() { return snapshotInterval; }
+    public void setSnapshotInterval(Duration snapshotInterval) { this.snapshotInterval = snapshotInterval; }
+}
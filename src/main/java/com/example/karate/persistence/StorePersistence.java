@@ -0,0 +1,262 @@
+package com.example.karate.persistence;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.User;
+import com.example.karate.repository.ChangeEvent;
+import com.example.karate.repository.ChangeListener;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Makes the in-memory repositories survive restarts.
+ *
+ * Every committed write is appended to the {@link WriteAheadLog} from inside the repository's
+ * write lock, so the log order matches the commit order, and the fsync policy is applied once the
+ * lock is released. Snapshots are taken periodically and on shutdown. The log is rotated and the
+ * stores are copied while both repositories' write locks are held, so every write is either in
+ * the snapshot or in a segment from the rotation point on; the copy is serialised after the
+ * locks are released.
+ *
+ * On startup the latest valid snapshot is loaded and the log tail replayed before any request
+ * is served.
+ */
+public class StorePersistence implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StorePersistence.class);
+
+    static final String PRODUCTS = "products";
+    static final String USERS = "users";
+
+    /**
+     * One log record: the full state of a created or updated record, or the id of a deleted one.
+     */
+    record LogEntry(String store, ChangeEvent.Type type, Long id, Object value) {}
+
+    private record RawLogEntry(String store, ChangeEvent.Type type, Long id, TokenBuffer value) {}
+
+    /**
+     * Snapshot body: the contents and id counters of both stores.
+     */
+    record SnapshotData(long productNextId, Collection<Product> products, long userNextId, Collection<User> users) {}
+
+    private final PersistenceProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+
+    /** Ticket of the last record the current thread appended and has not committed yet. */
+    private final ThreadLocal<long[]> pendingTicket = ThreadLocal.withInitial(() -> new long[1]);
+    /** Serialises snapshots; a lock rather than {@code synchronized}, which pins virtual threads. */
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService snapshots;
+
+    public StorePersistence(PersistenceProperties properties, ObjectMapper objectMapper,
+                            ProductRepository productRepository, UserRepository userRepository) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open persistent store in " + properties.getDirectory(), e);
+        }
+    }
+
+    /**
+     * Restores persisted state, then starts logging writes and taking periodic snapshots.
+     */
+    public void start() throws IOException {
+        Path directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        boolean restored = restore(directory);
+
+        wal = new WriteAheadLog(directory, properties.getFsync(), properties.getFsyncInterval());
+        productRepository.addListener(new LogListener<>(PRODUCTS));
+        userRepository.addListener(new LogListener<>(USERS));
+        if (!restored) {
+            // Capture the seed data, which was never logged
+            snapshot();
+        }
+
+        long interval = properties.getSnapshotInterval().toMillis();
+        if (interval > 0) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "store-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshots.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a snapshot of both stores and drops the log segments it covers.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            // A write appended to the old segment but not yet applied would otherwise be missing
+            // from the copy and lost with the segment. Records are replaced rather than mutated,
+            // so copying the references is enough to freeze the stores.
+            long[] firstSegment = new long[1];
+            SnapshotData data;
+            try {
+                data = productRepository.inBatch(() -> userRepository.inBatch(() -> {
+                    try {
+                        firstSegment[0] = wal.rotate();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return new SnapshotData(
+                            productRepository.peekNextId(), List.copyOf(productRepository.findAll()),
+                            userRepository.peekNextId(), List.copyOf(userRepository.findAll()));
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            byte[] body = objectMapper.writeValueAsBytes(data);
+            SnapshotStore.write(properties.getDirectory(), firstSegment[0], body);
+            wal.deleteSegmentsBefore(firstSegment[0]);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        if (wal != null) {
+            snapshot();
+            closeLog();
+        }
+    }
+
+    /**
+     * Closes the log without a final snapshot; the next start replays it.
+     */
+    protected void closeLog() throws IOException {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        wal.close();
+    }
+
+    private boolean restore(Path directory) throws IOException {
+        Optional<SnapshotStore.Snapshot> snapshot = SnapshotStore.readLatest(directory);
+        long firstSegment = snapshot.map(SnapshotStore.Snapshot::firstSegment).orElse(0L);
+        List<Path> segments = WriteAheadLog.segments(directory).stream()
+                .filter(segment -> WriteAheadLog.segmentNumber(segment) >= firstSegment)
+                .toList();
+        if (snapshot.isEmpty() && segments.isEmpty()) {
+            return false;
+        }
+
+        productRepository.clear();
+        userRepository.clear();
+        if (snapshot.isPresent()) {
+            SnapshotData data = objectMapper.readValue(
+                    new ByteBufferBackedInputStream(snapshot.get().body()), SnapshotData.class);
+            productRepository.ensureNextId(data.productNextId());
+            data.products().forEach(productRepository::insert);
+            userRepository.ensureNextId(data.userNextId());
+            data.users().forEach(userRepository::insert);
+        }
+        for (Path segment : segments) {
+            WriteAheadLog.replay(segment, this::apply);
+        }
+        log.info("Restored {} products and {} users from {} (snapshot: {}, log segments: {})",
+                productRepository.size(), userRepository.size(), directory, snapshot.isPresent(), segments.size());
+        return true;
+    }
+
+    private void apply(byte[] record) {
+        try {
+            // The value stays as raw tokens until the store is known, so decimals keep their scale
+            RawLogEntry entry = objectMapper.readValue(record, RawLogEntry.class);
+            boolean products = PRODUCTS.equals(entry.store());
+            if (entry.type() == ChangeEvent.Type.DELETED) {
+                if (products) {
+                    productRepository.deleteById(entry.id());
+                } else {
+                    userRepository.deleteById(entry.id());
+                }
+            } else if (products) {
+                productRepository.insert(objectMapper.readValue(entry.value().asParser(), Product.class));
+            } else {
+                userRepository.insert(objectMapper.readValue(entry.value().asParser(), User.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable log record", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Periodic snapshot failed; the log keeps growing until the next one succeeds", e);
+        }
+    }
+
+    private final class LogListener<T> implements ChangeListener<T> {
+        private final String store;
+
+        LogListener(String store) {
+            this.store = store;
+        }
+
+        @Override
+        public void onChange(ChangeEvent<T> event) {
+            Object value = event.type() == ChangeEvent.Type.DELETED ? null : event.value();
+            try {
+                byte[] record = objectMapper.writeValueAsBytes(new LogEntry(store, event.type(), event.id(), value));
+                pendingTicket.get()[0] = wal.append(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to the write-ahead log", e);
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            long[] pending = pendingTicket.get();
+            if (pending[0] == 0) {
+                return;
+            }
+            long ticket = pending[0];
+            pending[0] = 0;
+            try {
+                wal.commit(ticket);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync the write-ahead log", e);
+            }
+        }
+    }
+}
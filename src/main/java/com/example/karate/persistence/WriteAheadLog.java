@@ -0,0 +1,260 @@
+package com.example.karate.persistence;
+
+import com.example.karate.persistence.PersistenceProperties.FsyncPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of length-prefixed, CRC-checked records, split into numbered segment files
+ * ({@code wal-<n>.log}).
+ *
+ * Appends only write to the page cache. Durability is requested separately with
+ * {@link #commit(long)} using the ticket an append returned, which lets concurrent writers share
+ * one {@code fsync}: whoever forces the channel covers every record appended before it started,
+ * and the others return as soon as they see their ticket is already durable.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER_BYTES = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    private volatile FileChannel channel;
+    private volatile long segment;
+    /** Size of the current segment; guarded by {@link #appendLock}. */
+    private long segmentBytes;
+    /** Bytes appended since the log was opened; tickets are positions in this sequence. */
+    private volatile long appended;
+    /** Prefix of {@link #appended} known to be on disk. */
+    private volatile long durable;
+
+    /**
+     * Opens a new segment numbered after any already in {@code directory}; existing segments are
+     * left untouched for replay.
+     */
+    public WriteAheadLog(Path directory, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        List<Path> existing = segments(directory);
+        this.segment = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+        this.channel = open(segment);
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = Math.max(1, fsyncInterval.toMillis());
+            flusher.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Appends one record and returns its durability ticket.
+     */
+    public long append(byte[] payload) throws IOException {
+        appendLock.lock();
+        try {
+            crc.reset();
+            crc.update(payload);
+            header.clear();
+            header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+            ByteBuffer[] frame = {header, ByteBuffer.wrap(payload)};
+            try {
+                while (frame[1].hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                // Do not leave a torn frame in front of later appends
+                channel.truncate(segmentBytes);
+                throw e;
+            }
+            segmentBytes += FRAME_HEADER_BYTES + payload.length;
+            appended += FRAME_HEADER_BYTES + payload.length;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the fsync policy to a record appended earlier: under {@link FsyncPolicy#ALWAYS}
+     * this returns once the record is on disk, otherwise it returns immediately.
+     */
+    public void commit(long ticket) throws IOException {
+        if (policy == FsyncPolicy.ALWAYS) {
+            sync(ticket);
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its number. Every record appended afterwards lands in the
+     * new segment, so a snapshot taken after rotating only needs this segment and later ones.
+     */
+    public long rotate() throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            channel.force(false);
+            durable = appended;
+            channel.close();
+            segment++;
+            channel = open(segment);
+            segmentBytes = 0;
+            return segment;
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    public void deleteSegmentsBefore(long keepFrom) throws IOException {
+        for (Path path : segments(directory)) {
+            if (segmentNumber(path) < keepFrom) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            channel.force(false);
+            durable = appended;
+            channel.close();
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the segment files in {@code directory} in log order.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegment)
+                    .sorted(Comparator.comparingLong(WriteAheadLog::segmentNumber))
+                    .toList();
+        }
+    }
+
+    public static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Passes every intact record of {@code segment} to {@code handler}, in order. Reading stops
+     * at the first truncated or corrupt frame, which can only be the tail of a write interrupted
+     * by a crash.
+     */
+    public static void replay(Path segment, Consumer<byte[]> handler) throws IOException {
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            CRC32 checksum = new CRC32();
+            long remaining = in.size();
+            while (remaining >= FRAME_HEADER_BYTES) {
+                frameHeader.clear();
+                readFully(in, frameHeader);
+                int length = frameHeader.getInt(0);
+                int expectedCrc = frameHeader.getInt(Integer.BYTES);
+                remaining -= FRAME_HEADER_BYTES;
+                if (length < 0 || length > remaining) {
+                    return;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload);
+                remaining -= length;
+                checksum.reset();
+                checksum.update(payload.array());
+                if ((int) checksum.getValue() != expectedCrc) {
+                    return;
+                }
+                handler.accept(payload.array());
+            }
+        }
+    }
+
+    private void sync(long ticket) throws IOException {
+        if (durable >= ticket) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // Another writer may have forced our record while we waited
+            if (durable >= ticket) {
+                return;
+            }
+            long target = appended;
+            channel.force(false);
+            durable = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            sync(appended);
+        } catch (IOException e) {
+            log.warn("Background fsync of the write-ahead log failed", e);
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%012d", number) + SEGMENT_SUFFIX);
+        return FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+}
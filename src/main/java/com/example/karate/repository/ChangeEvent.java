@@ -0,0 +1,10 @@
+package com.example.karate.repository;
+
+/**
+ * A committed change to one record of a repository. {@code value} is the stored record after the
+ * change, or the removed record for {@link Type#DELETED}.
+ */
+public record ChangeEvent<T>(Type type, Long id, T value) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
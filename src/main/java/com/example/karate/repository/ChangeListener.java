@@ -0,0 +1,21 @@
+package com.example.karate.repository;
+
+/**
+ * Observes the writes applied to a repository.
+ */
+public interface ChangeListener<T> {
+
+    /**
+     * Called while the repository's write lock is held, so events arrive in commit order. Must be
+     * quick and must not call back into the repository. An exception aborts the write.
+     */
+    void onChange(ChangeEvent<T> event);
+
+    /**
+     * Called on the writing thread once the outermost write lock has been released, for work that
+     * should not hold up other writers, such as waiting for a log to reach disk. Every listener is
+     * called even if an earlier one throws; the writer then gets the first exception, with any
+     * others suppressed.
+     */
+    default void afterCommit() {}
+}
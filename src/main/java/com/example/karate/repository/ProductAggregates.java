@@ -0,0 +1,206 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Running totals over the products of a {@link ProductRepository}, for the whole store and per
+ * category. The repository adds and removes products under its write lock as it applies each
+ * write, so reading the totals never touches the products themselves.
+ *
+ * Min and max prices are not kept here: a running minimum cannot be undone when its product
+ * goes away, and the repository's price indexes already answer both.
+ */
+final class ProductAggregates {
+
+    /**
+     * Totals over a set of products. Prices are summed over the products that have one.
+     */
+    record Totals(long count, long quantity, long priced, BigDecimal priceSum, BigDecimal inventoryValue) {
+
+        static final Totals EMPTY = new Totals(0, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        Totals plus(Product product) {
+            BigDecimal price = product.getPrice();
+            if (price == null) {
+                return new Totals(count + 1, quantity + product.getQuantity(), priced, priceSum, inventoryValue);
+            }
+            return new Totals(count + 1, quantity + product.getQuantity(), priced + 1, priceSum.add(price),
+                    inventoryValue.add(price.multiply(BigDecimal.valueOf(product.getQuantity()))));
+        }
+
+        Totals minus(Product product) {
+            BigDecimal price = product.getPrice();
+            if (price == null) {
+                return new Totals(count - 1, quantity - product.getQuantity(), priced, priceSum, inventoryValue);
+            }
+            return new Totals(count - 1, quantity - product.getQuantity(), priced - 1, priceSum.subtract(price),
+                    inventoryValue.subtract(price.multiply(BigDecimal.valueOf(product.getQuantity()))));
+        }
+
+        Totals merge(Totals other) {
+            return new Totals(count + other.count, quantity + other.quantity, priced + other.priced,
+                    priceSum.add(other.priceSum), inventoryValue.add(other.inventoryValue));
+        }
+
+        /**
+         * Same totals, ignoring the scale of the sums: {@code 1.5} and {@code 1.50} match.
+         */
+        boolean matches(Totals other) {
+            return count == other.count && quantity == other.quantity && priced == other.priced
+                    && priceSum.compareTo(other.priceSum) == 0 && inventoryValue.compareTo(other.inventoryValue) == 0;
+        }
+    }
+
+    /** Products per fork/join leaf task. */
+    private static final int LEAF_SIZE = 16_384;
+
+    private volatile Totals total = Totals.EMPTY;
+    private final ConcurrentMap<String, Totals> byCategory = new ConcurrentHashMap<>();
+
+    Totals total() {
+        return total;
+    }
+
+    Map<String, Totals> byCategory() {
+        return byCategory;
+    }
+
+    void add(Product product) {
+        total = total.plus(product);
+        if (product.getCategory() != null) {
+            byCategory.merge(product.getCategory(), Totals.EMPTY.plus(product), Totals::merge);
+        }
+    }
+
+    void remove(Product product) {
+        total = total.minus(product);
+        if (product.getCategory() != null) {
+            byCategory.computeIfPresent(product.getCategory(), (category, totals) -> {
+                Totals remaining = totals.minus(product);
+                return remaining.count() == 0 ? null : remaining;
+            });
+        }
+    }
+
+    void clear() {
+        total = Totals.EMPTY;
+        byCategory.clear();
+    }
+
+    /**
+     * Replaces these totals with {@code other}'s and returns whether they differed.
+     */
+    boolean replaceWith(ProductAggregates other) {
+        boolean drifted = !matches(other);
+        total = other.total;
+        byCategory.keySet().retainAll(other.byCategory.keySet());
+        byCategory.putAll(other.byCategory);
+        return drifted;
+    }
+
+    private boolean matches(ProductAggregates other) {
+        if (!total.matches(other.total) || !byCategory.keySet().equals(other.byCategory.keySet())) {
+            return false;
+        }
+        return byCategory.entrySet().stream()
+                .allMatch(entry -> entry.getValue().matches(other.byCategory.get(entry.getKey())));
+    }
+
+    /**
+     * Computes the totals of {@code products} from scratch, splitting the array across
+     * {@code pool} and merging the partial totals pairwise.
+     */
+    static ProductAggregates of(Product[] products, ForkJoinPool pool) {
+        Partial partial = pool.invoke(new Reduction(products, 0, products.length));
+        ProductAggregates aggregates = new ProductAggregates();
+        aggregates.total = partial.total;
+        aggregates.byCategory.putAll(partial.byCategory);
+        return aggregates;
+    }
+
+    private static final class Partial {
+        private Totals total = Totals.EMPTY;
+        private final Map<String, Totals> byCategory = new HashMap<>();
+
+        Partial merge(Partial other) {
+            total = total.merge(other.total);
+            other.byCategory.forEach((category, totals) -> byCategory.merge(category, totals, Totals::merge));
+            return this;
+        }
+    }
+
+    private static final class Reduction extends RecursiveTask<Partial> {
+        private final Product[] products;
+        private final int from;
+        private final int to;
+
+        Reduction(Product[] products, int from, int to) {
+            this.products = products;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                return reduce();
+            }
+            int middle = (from + to) >>> 1;
+            Reduction left = new Reduction(products, from, middle);
+            left.fork();
+            Partial right = new Reduction(products, middle, to).compute();
+            return left.join().merge(right);
+        }
+
+        private Partial reduce() {
+            // Group per leaf first so each category's totals are built without copying per product
+            Map<String, Accumulator> categories = new HashMap<>();
+            Accumulator total = new Accumulator();
+            for (int i = from; i < to; i++) {
+                Product product = products[i];
+                total.add(product);
+                if (product.getCategory() != null) {
+                    categories.computeIfAbsent(product.getCategory(), category -> new Accumulator()).add(product);
+                }
+            }
+            Partial partial = new Partial();
+            partial.total = total.totals();
+            categories.forEach((category, accumulator) -> partial.byCategory.put(category, accumulator.totals()));
+            return partial;
+        }
+    }
+
+    /**
+     * Mutable totals for one leaf of a reduction.
+     */
+    private static final class Accumulator {
+        private long count;
+        private long quantity;
+        private long priced;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        private BigDecimal inventoryValue = BigDecimal.ZERO;
+
+        void add(Product product) {
+            count++;
+            quantity += product.getQuantity();
+            BigDecimal price = product.getPrice();
+            if (price != null) {
+                priced++;
+                priceSum = priceSum.add(price);
+                inventoryValue = inventoryValue.add(price.multiply(BigDecimal.valueOf(product.getQuantity())));
+            }
+        }
+
+        Totals totals() {
+            return new Totals(count, quantity, priced, priceSum, inventoryValue);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The category and price of every product in primitive columns, in id order, so
+ * {@link ProductRepository#find} can filter by scanning arrays instead of walking index postings
+ * and sorting the ids they yield: ids as {@code long[]}, prices as {@code long[]} fixed-point
+ * cents and categories as {@code int[]} codes into a dictionary.
+ *
+ * Writers are serialised by the repository's write lock and readers never lock. A reader scans
+ * the table that was current when it started. Rows are appended and changed in place, so it may
+ * see a row halfway through an update or miss later writes. The repository re-checks every
+ * candidate against the stored record, as it does for the indexes. Growing the arrays, inserting
+ * below the highest id and compacting deleted rows all copy into new arrays, so rows never move
+ * under a reader.
+ *
+ * Prices with fractions of a cent cannot be held in cents. They are marked so every price filter
+ * passes them on, and the re-check decides.
+ */
+final class ProductColumns {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final long INEXACT_PRICE = Long.MIN_VALUE + 1;
+    private static final int NO_CATEGORY = -1;
+    private static final int DELETED = -2;
+    private static final int ANY_CATEGORY = -3;
+
+    /**
+     * One published state of the columns: rows {@code [0, rows)} of the arrays.
+     */
+    private record Table(long[] ids, int[] categories, long[] cents, int rows) {}
+
+    private final Map<String, Integer> categoryCodes = new ConcurrentHashMap<>();
+    private volatile Table table = empty();
+    private int nextCode;
+    private int deleted;
+
+    /**
+     * Returns the ids of the rows that match all non-null filters, in id order, starting after
+     * {@code afterId} when one is given. Rows are examined as the stream is consumed and counted
+     * in {@code stats}.
+     */
+    Stream<Long> find(String category, BigDecimal minPrice, BigDecimal maxPrice, Long afterId, ScanStats stats) {
+        stats.query();
+        Table current = table;
+        int code = category == null ? ANY_CATEGORY : categoryCodes.getOrDefault(category, NO_CATEGORY);
+        if (code == NO_CATEGORY || (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0)) {
+            return Stream.empty();
+        }
+        long low = minPrice == null ? Long.MIN_VALUE : toBound(minPrice, RoundingMode.CEILING);
+        long high = maxPrice == null ? Long.MAX_VALUE : toBound(maxPrice, RoundingMode.FLOOR);
+        int start = afterId == null ? 0 : firstRowAfter(current, afterId);
+        return StreamSupport.stream(new Scan(current, start, code, minPrice != null || maxPrice != null, low, high, stats),
+                false);
+    }
+
+    /**
+     * Records the category and price of {@code product}, adding a row when its id has none.
+     */
+    void put(Product product) {
+        Table current = table;
+        long id = product.getId();
+        int category = encode(product.getCategory());
+        long price = toCents(product.getPrice());
+        int row = Arrays.binarySearch(current.ids(), 0, current.rows(), id);
+        if (row >= 0) {
+            if (current.categories()[row] == DELETED) {
+                deleted--;
+            }
+            current.cents()[row] = price;
+            current.categories()[row] = category;
+            return;
+        }
+        row = -row - 1;
+        if (row == current.rows() && row < current.ids().length) {
+            current.ids()[row] = id;
+            current.categories()[row] = category;
+            current.cents()[row] = price;
+            table = new Table(current.ids(), current.categories(), current.cents(), row + 1);
+            return;
+        }
+        int capacity = current.rows() < current.ids().length
+                ? current.ids().length
+                : current.ids().length + (current.ids().length >> 1);
+        Table copy = new Table(new long[capacity], new int[capacity], new long[capacity], current.rows() + 1);
+        copyRows(current, 0, copy, 0, row);
+        copyRows(current, row, copy, row + 1, current.rows() - row);
+        copy.ids()[row] = id;
+        copy.categories()[row] = category;
+        copy.cents()[row] = price;
+        table = copy;
+    }
+
+    void remove(long id) {
+        Table current = table;
+        int row = Arrays.binarySearch(current.ids(), 0, current.rows(), id);
+        if (row < 0 || current.categories()[row] == DELETED) {
+            return;
+        }
+        current.categories()[row] = DELETED;
+        deleted++;
+        if (deleted > current.rows() / 2) {
+            compact(current);
+        }
+    }
+
+    void clear() {
+        table = empty();
+        categoryCodes.clear();
+        nextCode = 0;
+        deleted = 0;
+    }
+
+    private void compact(Table current) {
+        int live = current.rows() - deleted;
+        int capacity = Math.max(INITIAL_CAPACITY, live + (live >> 1));
+        Table copy = new Table(new long[capacity], new int[capacity], new long[capacity], live);
+        int to = 0;
+        for (int row = 0; row < current.rows(); row++) {
+            if (current.categories()[row] != DELETED) {
+                copyRows(current, row, copy, to++, 1);
+            }
+        }
+        table = copy;
+        deleted = 0;
+    }
+
+    /**
+     * Returns the code for {@code category}, adding it to the dictionary. Codes are never
+     * reused, so the dictionary only grows by distinct names.
+     */
+    private int encode(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            code = nextCode++;
+            categoryCodes.put(category, code);
+        }
+        return code;
+    }
+
+    private static Table empty() {
+        return new Table(new long[INITIAL_CAPACITY], new int[INITIAL_CAPACITY], new long[INITIAL_CAPACITY], 0);
+    }
+
+    private static void copyRows(Table from, int fromRow, Table to, int toRow, int rows) {
+        System.arraycopy(from.ids(), fromRow, to.ids(), toRow, rows);
+        System.arraycopy(from.categories(), fromRow, to.categories(), toRow, rows);
+        System.arraycopy(from.cents(), fromRow, to.cents(), toRow, rows);
+    }
+
+    private static int firstRowAfter(Table table, long id) {
+        int row = Arrays.binarySearch(table.ids(), 0, table.rows(), id);
+        return row >= 0 ? row + 1 : -row - 1;
+    }
+
+    private static long toCents(BigDecimal price) {
+        if (price == null) {
+            return NO_PRICE;
+        }
+        try {
+            long cents = price.movePointRight(2).longValueExact();
+            return cents == NO_PRICE ? INEXACT_PRICE : cents;
+        } catch (ArithmeticException e) {
+            return INEXACT_PRICE;
+        }
+    }
+
+    /**
+     * Converts a filter bound to cents, rounding towards the inside of the range and clamping
+     * bounds outside what the column can hold.
+     */
+    private static long toBound(BigDecimal price, RoundingMode rounding) {
+        BigDecimal bound = price.movePointRight(2).setScale(0, rounding);
+        if (bound.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (bound.compareTo(BigDecimal.valueOf(INEXACT_PRICE + 1)) < 0) {
+            return INEXACT_PRICE + 1;
+        }
+        return bound.longValueExact();
+    }
+
+    /**
+     * Yields the ids of matching rows, scanning only as far as the consumer pulls.
+     */
+    private static final class Scan extends Spliterators.AbstractSpliterator<Long> {
+        private final Table table;
+        private final int code;
+        private final boolean priced;
+        private final long low;
+        private final long high;
+        private final ScanStats stats;
+        private int row;
+
+        Scan(Table table, int start, int code, boolean priced, long low, long high, ScanStats stats) {
+            super(table.rows() - start, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            this.table = table;
+            this.row = start;
+            this.code = code;
+            this.priced = priced;
+            this.low = low;
+            this.high = high;
+            this.stats = stats;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            int[] categories = table.categories();
+            long[] cents = table.cents();
+            int from = row;
+            for (; row < table.rows(); row++) {
+                int category = categories[row];
+                if (category == DELETED || (code != ANY_CATEGORY && category != code)) {
+                    continue;
+                }
+                if (priced) {
+                    long price = cents[row];
+                    if (price == NO_PRICE || (price != INEXACT_PRICE && (price < low || price > high))) {
+                        continue;
+                    }
+                }
+                long id = table.ids()[row++];
+                stats.scanned(row - from);
+                action.accept(id);
+                return true;
+            }
+            stats.scanned(row - from);
+            return false;
+        }
+    }
+}
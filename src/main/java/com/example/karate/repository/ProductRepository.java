@@ -0,0 +1,488 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.ProductStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe in-memory product store.
+ *
+ * Lookups by id are served from a hash map, listings from an id-ordered skip list so that
+ * results keep their creation order. Reads never lock; writes are serialised by a single
+ * lock so all views and indexes always change together. Stored products are never modified:
+ * an update builds a changed copy and swaps it in. Ids are handed out by an
+ * {@link AtomicLong}.
+ *
+ * Category and price filters are answered from secondary indexes (category to ids, price to
+ * ids, and price to ids within each category), so a filtered listing only touches the
+ * products it returns. With {@code sandbox.products.columnar-filters} on they are answered
+ * by scanning {@link ProductColumns} instead, which keeps the category and price of every
+ * product in primitive arrays and only looks up the records that match.
+ *
+ * Count, stock, price and inventory value totals for the store and for each category are kept
+ * up to date by every write in the same way, so {@link #stats()} never scans the products.
+ *
+ * Every write is reported to the registered {@link ChangeListener}s before it becomes visible.
+ * Writes also bump the version of the record they touch and the version of the whole store,
+ * which the HTTP layer turns into ETags.
+ */
+@Repository
+public class ProductRepository {
+
+    private final ConcurrentMap<Long, Product> byId = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Product> ordered = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<ChangeListener<Product>> listeners = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentNavigableMap<String, NavigableSet<Long>> byCategory = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<BigDecimal, NavigableSet<Long>> byPrice = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<BigDecimal, NavigableSet<Long>>> byCategoryPrice =
+            new ConcurrentHashMap<>();
+    /** Filter columns, or {@code null} when filters use the indexes. */
+    private final ProductColumns columns;
+    private final ScanStats filterScans = new ScanStats();
+    private final ProductAggregates aggregates = new ProductAggregates();
+
+    public ProductRepository() {
+        this(false);
+    }
+
+    @Autowired
+    public ProductRepository(@Value("${sandbox.products.columnar-filters:false}") boolean columnarFilters) {
+        this.columns = columnarFilters ? new ProductColumns() : null;
+    }
+
+    public Optional<Product> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Returns a weakly consistent, id-ordered view of all products.
+     */
+    public Collection<Product> findAll() {
+        return ordered.values();
+    }
+
+    public Stream<Product> find(String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        return find(category, minPrice, maxPrice, null);
+    }
+
+    /**
+     * Returns the products matching all non-null filters, in id order, starting after
+     * {@code afterId} when one is given. Each filter combination is served from the narrowest
+     * index, or from a scan of the filter columns when they are kept; candidates are re-checked
+     * because a concurrent update may have moved them since the index was read.
+     */
+    public Stream<Product> find(String category, BigDecimal minPrice, BigDecimal maxPrice, Long afterId) {
+        if (category == null && minPrice == null && maxPrice == null) {
+            return filterScans.track((afterId == null ? ordered : ordered.tailMap(afterId, false)).values().stream());
+        }
+        if (columns != null) {
+            return columns.find(category, minPrice, maxPrice, afterId, filterScans)
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .filter(product -> matches(product, category, minPrice, maxPrice));
+        }
+        Stream<Long> ids;
+        if (minPrice == null && maxPrice == null) {
+            NavigableSet<Long> inCategory = byCategory.getOrDefault(category, Collections.emptyNavigableSet());
+            ids = (afterId == null ? inCategory : inCategory.tailSet(afterId, false)).stream();
+        } else {
+            NavigableMap<BigDecimal, NavigableSet<Long>> prices = category == null ? byPrice : byCategoryPrice.get(category);
+            if (prices == null) {
+                return filterScans.track(Stream.empty());
+            }
+            ids = priceRange(prices, minPrice, maxPrice).values().stream()
+                    .flatMap(Set::stream)
+                    .filter(id -> afterId == null || id > afterId)
+                    .sorted();
+        }
+        return filterScans.track(ids.map(byId::get))
+                .filter(Objects::nonNull)
+                .filter(product -> matches(product, category, minPrice, maxPrice));
+    }
+
+    /**
+     * Returns the distinct categories currently in use, in alphabetical order.
+     */
+    public List<String> findCategories() {
+        return List.copyOf(byCategory.keySet());
+    }
+
+    public Product create(Product product) {
+        product.setId(nextId.getAndIncrement());
+        product.setVersion(0);
+        return insert(product);
+    }
+
+    /**
+     * Creates all of {@code products} with one id range allocation and one pass under the write
+     * lock.
+     */
+    public List<Product> createAll(List<Product> products) {
+        long firstId = allocateIds(products.size());
+        return inBatch(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                product.setId(firstId + i);
+                product.setVersion(0);
+                insert(product);
+            }
+            return products;
+        });
+    }
+
+    /**
+     * Reserves {@code count} consecutive ids in a single atomic step and returns the first.
+     */
+    public long allocateIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    /**
+     * Stores a product under the id it already carries, replacing any product with that id.
+     * A replacement gets the next version of the one it replaces; a new record keeps the
+     * version it carries, starting at 1.
+     */
+    public Product insert(Product product) {
+        Long id = product.getId();
+        ensureNextId(id + 1);
+        writeLock.lock();
+        try {
+            Product previous = byId.get(id);
+            product.setVersion(previous == null ? Math.max(product.getVersion(), 1) : previous.getVersion() + 1);
+            publish(previous == null ? ChangeEvent.Type.CREATED : ChangeEvent.Type.UPDATED, id, product);
+            byId.put(id, product);
+            ordered.put(id, product);
+            if (previous != null) {
+                unindex(id, previous.getCategory(), previous.getPrice());
+                aggregates.remove(previous);
+            }
+            index(id, product.getCategory(), product.getPrice());
+            if (columns != null) {
+                columns.put(product);
+            }
+            aggregates.add(product);
+            version.incrementAndGet();
+        } finally {
+            unlock();
+        }
+        return product;
+    }
+
+    /**
+     * Makes sure ids handed out from now on are at least {@code next}.
+     */
+    public void ensureNextId(long next) {
+        if (next > nextId.get()) {
+            nextId.accumulateAndGet(next, Math::max);
+        }
+    }
+
+    public long peekNextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Runs {@code batch} while holding the write lock, so a group of writes is applied in one
+     * pass without interleaving with other writers. The lock is re-entrant, so the batch may
+     * call any of the write methods.
+     */
+    public <R> R inBatch(Supplier<R> batch) {
+        writeLock.lock();
+        try {
+            return batch.get();
+        } finally {
+            unlock();
+        }
+    }
+
+    public Optional<Product> update(Long id, UnaryOperator<Product> change) {
+        return update(id, null, change);
+    }
+
+    /**
+     * Applies {@code change} to a copy of the stored product and swaps the copy in, all while
+     * holding the write lock. Concurrent updates to the same product are applied one after
+     * another and none are lost, and readers only ever see complete records.
+     *
+     * @param expectedVersion the version the caller last saw, or {@code null} to update
+     *                        whatever is stored
+     * @throws VersionConflictException if the stored version is not {@code expectedVersion}
+     */
+    public Optional<Product> update(Long id, Long expectedVersion, UnaryOperator<Product> change) {
+        writeLock.lock();
+        try {
+            Product existing = byId.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            if (expectedVersion != null && expectedVersion != existing.getVersion()) {
+                throw new VersionConflictException(id, existing.getVersion());
+            }
+            Product updated = change.apply(new Product(existing));
+            updated.setId(id);
+            updated.setVersion(existing.getVersion() + 1);
+            publish(ChangeEvent.Type.UPDATED, id, updated);
+            byId.put(id, updated);
+            ordered.put(id, updated);
+            if (!Objects.equals(existing.getCategory(), updated.getCategory())
+                    || !samePrice(existing.getPrice(), updated.getPrice())) {
+                unindex(id, existing.getCategory(), existing.getPrice());
+                index(id, updated.getCategory(), updated.getPrice());
+                if (columns != null) {
+                    columns.put(updated);
+                }
+            }
+            aggregates.remove(existing);
+            aggregates.add(updated);
+            version.incrementAndGet();
+            return Optional.of(updated);
+        } finally {
+            unlock();
+        }
+    }
+
+    public boolean deleteById(Long id) {
+        writeLock.lock();
+        try {
+            Product removed = byId.get(id);
+            if (removed == null) {
+                return false;
+            }
+            publish(ChangeEvent.Type.DELETED, id, removed);
+            byId.remove(id);
+            ordered.remove(id);
+            unindex(id, removed.getCategory(), removed.getPrice());
+            if (columns != null) {
+                columns.remove(id);
+            }
+            aggregates.remove(removed);
+            version.incrementAndGet();
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Removes every product without notifying listeners, ahead of restoring persisted state.
+     */
+    public void clear() {
+        writeLock.lock();
+        try {
+            byId.clear();
+            ordered.clear();
+            byCategory.clear();
+            byPrice.clear();
+            byCategoryPrice.clear();
+            if (columns != null) {
+                columns.clear();
+            }
+            aggregates.clear();
+            version.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the aggregates over all products.
+     */
+    public ProductStats stats() {
+        return stats(aggregates.total(), byPrice);
+    }
+
+    /**
+     * Returns the aggregates per category, in alphabetical order. Products without a category
+     * only count towards {@link #stats()}.
+     */
+    public Map<String, ProductStats> statsByCategory() {
+        Map<String, ProductStats> stats = new LinkedHashMap<>();
+        aggregates.byCategory().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    NavigableMap<BigDecimal, NavigableSet<Long>> prices = byCategoryPrice.get(entry.getKey());
+                    stats.put(entry.getKey(), stats(entry.getValue(), prices == null ? Collections.emptyNavigableMap() : prices));
+                });
+        return stats;
+    }
+
+    /**
+     * Rebuilds the running aggregates from the stored products with a fork/join reduction on
+     * {@code pool}, holding the write lock so no write is counted twice or missed. Returns
+     * whether the running aggregates had drifted from the products.
+     */
+    public boolean recomputeStats(ForkJoinPool pool) {
+        writeLock.lock();
+        try {
+            ProductAggregates recomputed = ProductAggregates.of(ordered.values().toArray(new Product[0]), pool);
+            boolean drifted = aggregates.replaceWith(recomputed);
+            if (drifted) {
+                version.incrementAndGet();
+            }
+            return drifted;
+        } finally {
+            unlock();
+        }
+    }
+
+    public void addListener(ChangeListener<Product> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the collection version, which every write bumps once its changes are visible.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Queries and records examined by {@link #find}.
+     */
+    public ScanStats filterScans() {
+        return filterScans;
+    }
+
+    public int categoryIndexSize() {
+        return byCategory.size();
+    }
+
+    public int priceIndexSize() {
+        return byPrice.size();
+    }
+
+    private void publish(ChangeEvent.Type type, Long id, Product product) {
+        if (!listeners.isEmpty()) {
+            ChangeEvent<Product> event = new ChangeEvent<>(type, id, product);
+            for (ChangeListener<Product> listener : listeners) {
+                listener.onChange(event);
+            }
+        }
+    }
+
+    private void unlock() {
+        writeLock.unlock();
+        if (!writeLock.isHeldByCurrentThread()) {
+            // Every listener hears of the commit, even when an earlier one fails
+            RuntimeException failure = null;
+            for (ChangeListener<Product> listener : listeners) {
+                try {
+                    listener.afterCommit();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void index(Long id, String category, BigDecimal price) {
+        addPosting(byCategory, category, id);
+        addPosting(byPrice, price, id);
+        if (category != null) {
+            addPosting(byCategoryPrice.computeIfAbsent(category, c -> new ConcurrentSkipListMap<>()), price, id);
+        }
+    }
+
+    private void unindex(Long id, String category, BigDecimal price) {
+        removePosting(byCategory, category, id);
+        removePosting(byPrice, price, id);
+        if (category != null) {
+            byCategoryPrice.computeIfPresent(category, (c, prices) -> {
+                removePosting(prices, price, id);
+                return prices.isEmpty() ? null : prices;
+            });
+        }
+    }
+
+    private static <K> void addPosting(ConcurrentMap<K, NavigableSet<Long>> index, K key, Long id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    private static <K> void removePosting(ConcurrentMap<K, NavigableSet<Long>> index, K key, Long id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static ProductStats stats(ProductAggregates.Totals totals, NavigableMap<BigDecimal, NavigableSet<Long>> prices) {
+        Map.Entry<BigDecimal, NavigableSet<Long>> min = prices.firstEntry();
+        Map.Entry<BigDecimal, NavigableSet<Long>> max = prices.lastEntry();
+        BigDecimal average = totals.priced() == 0 ? null
+                : totals.priceSum().divide(BigDecimal.valueOf(totals.priced()), Math.max(totals.priceSum().scale(), 2),
+                        RoundingMode.HALF_EVEN);
+        return new ProductStats(totals.count(), totals.quantity(),
+                min == null ? null : min.getKey(), max == null ? null : max.getKey(),
+                average, totals.inventoryValue());
+    }
+
+    private static NavigableMap<BigDecimal, NavigableSet<Long>> priceRange(
+            NavigableMap<BigDecimal, NavigableSet<Long>> prices, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice != null && maxPrice != null) {
+            return minPrice.compareTo(maxPrice) > 0
+                    ? Collections.emptyNavigableMap()
+                    : prices.subMap(minPrice, true, maxPrice, true);
+        }
+        if (minPrice != null) {
+            return prices.tailMap(minPrice, true);
+        }
+        return maxPrice != null ? prices.headMap(maxPrice, true) : prices;
+    }
+
+    private static boolean matches(Product product, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        BigDecimal price = product.getPrice();
+        return (category == null || category.equals(product.getCategory()))
+                && (minPrice == null || (price != null && price.compareTo(minPrice) >= 0))
+                && (maxPrice == null || (price != null && price.compareTo(maxPrice) <= 0));
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.karate.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Running totals for one query path of a repository: how many queries ran and how many records
+ * they examined, including the ones a filter then rejected. The ratio is the mean scan length,
+ * which grows with the store when a query is not served by an index.
+ *
+ * Streams are lazy, so only the records a caller actually pulls are counted.
+ */
+public final class ScanStats {
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+
+    /**
+     * Counts one query and every element {@code candidates} yields from now on.
+     */
+    <T> Stream<T> track(Stream<T> candidates) {
+        queries.increment();
+        return candidates.peek(candidate -> scanned.increment());
+    }
+
+    /**
+     * Counts one query whose records are reported through {@link #scanned(long)} as it examines
+     * them.
+     */
+    void query() {
+        queries.increment();
+    }
+
+    void scanned(long records) {
+        scanned.add(records);
+    }
+
+    public long queries() {
+        return queries.sum();
+    }
+
+    public long scanned() {
+        return scanned.sum();
+    }
+}
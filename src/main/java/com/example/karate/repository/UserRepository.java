@@ -0,0 +1,405 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.User;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe in-memory user store, organised like {@link ProductRepository}: a hash map for
+ * id lookups, an id-ordered skip list for listings, a single write lock and copy-on-write
+ * updates.
+ *
+ * Substring search over name and email is served from a trigram index. Each user's lower-cased
+ * name and email are kept alongside the index, so a search intersects the posting lists of the
+ * query's trigrams and only verifies the surviving candidates, without lower-casing anything
+ * per row.
+ *
+ * Every write is reported to the registered {@link ChangeListener}s before it becomes visible.
+ * Writes also bump the version of the record they touch and the version of the whole store,
+ * which the HTTP layer turns into ETags.
+ */
+@Repository
+public class UserRepository {
+
+    private static final int GRAM = 3;
+
+    private final ConcurrentMap<Long, User> byId = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, User> ordered = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<ChangeListener<User>> listeners = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentMap<Long, SearchKey> searchKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Postings> trigrams = new ConcurrentHashMap<>();
+    private final ScanStats filterScans = new ScanStats();
+    private final ScanStats searchScans = new ScanStats();
+
+    public Optional<User> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Returns a weakly consistent, id-ordered view of all users.
+     */
+    public Collection<User> findAll() {
+        return ordered.values();
+    }
+
+    /**
+     * Returns the users matching all non-null filters in id order, starting after
+     * {@code afterId} when one is given.
+     */
+    public Stream<User> find(String role, Boolean active, Long afterId) {
+        Collection<User> candidates = afterId == null ? ordered.values() : ordered.tailMap(afterId, false).values();
+        return filterScans.track(candidates.stream())
+                .filter(user -> role == null || role.equals(user.getRole()))
+                .filter(user -> active == null || user.isActive() == active);
+    }
+
+    /**
+     * Returns, in id order, the users whose name or email contains {@code query}, ignoring case.
+     * The stream is lazy, so callers that skip or limit it never materialise the full result.
+     */
+    public Stream<User> search(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        Stream<Long> candidates;
+        if (needle.length() < GRAM) {
+            candidates = ordered.keySet().stream();
+        } else {
+            // Walk the shortest posting list and probe the others
+            List<Postings> others = new ArrayList<>();
+            Postings smallest = null;
+            for (String gram : grams(needle)) {
+                Postings postings = trigrams.get(gram);
+                if (postings == null) {
+                    return searchScans.track(Stream.empty());
+                }
+                if (smallest == null || postings.size < smallest.size) {
+                    if (smallest != null) {
+                        others.add(smallest);
+                    }
+                    smallest = postings;
+                } else {
+                    others.add(postings);
+                }
+            }
+            candidates = smallest.ids.stream()
+                    .filter(id -> others.stream().allMatch(p -> p.ids.contains(id)));
+        }
+        return searchScans.track(candidates)
+                .filter(id -> {
+                    SearchKey key = searchKeys.get(id);
+                    return key != null && key.contains(needle);
+                })
+                .map(byId::get)
+                .filter(Objects::nonNull);
+    }
+
+    public User create(User user) {
+        user.setId(nextId.getAndIncrement());
+        user.setVersion(0);
+        return insert(user);
+    }
+
+    /**
+     * Creates all of {@code users} with one id range allocation and one pass under the write
+     * lock.
+     */
+    public List<User> createAll(List<User> users) {
+        long firstId = allocateIds(users.size());
+        return inBatch(() -> {
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                user.setId(firstId + i);
+                user.setVersion(0);
+                insert(user);
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Reserves {@code count} consecutive ids in a single atomic step and returns the first.
+     */
+    public long allocateIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    /**
+     * Stores a user under the id it already carries, replacing any user with that id.
+     * A replacement gets the next version of the one it replaces; a new record keeps the
+     * version it carries, starting at 1.
+     */
+    public User insert(User user) {
+        Long id = user.getId();
+        ensureNextId(id + 1);
+        writeLock.lock();
+        try {
+            User previous = byId.get(id);
+            user.setVersion(previous == null ? Math.max(user.getVersion(), 1) : previous.getVersion() + 1);
+            publish(previous == null ? ChangeEvent.Type.CREATED : ChangeEvent.Type.UPDATED, id, user);
+            byId.put(id, user);
+            ordered.put(id, user);
+            unindex(id, searchKeys.get(id));
+            index(id, SearchKey.of(user));
+            version.incrementAndGet();
+        } finally {
+            unlock();
+        }
+        return user;
+    }
+
+    /**
+     * Makes sure ids handed out from now on are at least {@code next}.
+     */
+    public void ensureNextId(long next) {
+        if (next > nextId.get()) {
+            nextId.accumulateAndGet(next, Math::max);
+        }
+    }
+
+    public long peekNextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Runs {@code batch} while holding the write lock, so a group of writes is applied in one
+     * pass without interleaving with other writers. The lock is re-entrant, so the batch may
+     * call any of the write methods.
+     */
+    public <R> R inBatch(Supplier<R> batch) {
+        writeLock.lock();
+        try {
+            return batch.get();
+        } finally {
+            unlock();
+        }
+    }
+
+    public Optional<User> update(Long id, UnaryOperator<User> change) {
+        return update(id, null, change);
+    }
+
+    /**
+     * Applies {@code change} to a copy of the stored user and swaps the copy in while holding
+     * the write lock, like {@link ProductRepository#update(Long, Long, UnaryOperator)}.
+     *
+     * @param expectedVersion the version the caller last saw, or {@code null} to update
+     *                        whatever is stored
+     * @throws VersionConflictException if the stored version is not {@code expectedVersion}
+     */
+    public Optional<User> update(Long id, Long expectedVersion, UnaryOperator<User> change) {
+        writeLock.lock();
+        try {
+            User existing = byId.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            if (expectedVersion != null && expectedVersion != existing.getVersion()) {
+                throw new VersionConflictException(id, existing.getVersion());
+            }
+            SearchKey oldKey = searchKeys.get(id);
+            User updated = change.apply(new User(existing));
+            updated.setId(id);
+            updated.setVersion(existing.getVersion() + 1);
+            publish(ChangeEvent.Type.UPDATED, id, updated);
+            byId.put(id, updated);
+            ordered.put(id, updated);
+            SearchKey newKey = SearchKey.of(updated);
+            if (!newKey.equals(oldKey)) {
+                unindex(id, oldKey);
+                index(id, newKey);
+            }
+            version.incrementAndGet();
+            return Optional.of(updated);
+        } finally {
+            unlock();
+        }
+    }
+
+    public boolean deleteById(Long id) {
+        writeLock.lock();
+        try {
+            User removed = byId.get(id);
+            if (removed == null) {
+                return false;
+            }
+            publish(ChangeEvent.Type.DELETED, id, removed);
+            byId.remove(id);
+            ordered.remove(id);
+            unindex(id, searchKeys.get(id));
+            version.incrementAndGet();
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Removes every user without notifying listeners, ahead of restoring persisted state.
+     */
+    public void clear() {
+        writeLock.lock();
+        try {
+            byId.clear();
+            ordered.clear();
+            searchKeys.clear();
+            trigrams.clear();
+            version.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void addListener(ChangeListener<User> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the collection version, which every write bumps once its changes are visible.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Queries and records examined by {@link #find}.
+     */
+    public ScanStats filterScans() {
+        return filterScans;
+    }
+
+    /**
+     * Queries and candidates verified by {@link #search}; trigram lookups narrow the candidates
+     * for queries of three characters or more.
+     */
+    public ScanStats searchScans() {
+        return searchScans;
+    }
+
+    public int trigramIndexSize() {
+        return trigrams.size();
+    }
+
+    private void publish(ChangeEvent.Type type, Long id, User user) {
+        if (!listeners.isEmpty()) {
+            ChangeEvent<User> event = new ChangeEvent<>(type, id, user);
+            for (ChangeListener<User> listener : listeners) {
+                listener.onChange(event);
+            }
+        }
+    }
+
+    private void unlock() {
+        writeLock.unlock();
+        if (!writeLock.isHeldByCurrentThread()) {
+            // Every listener hears of the commit, even when an earlier one fails
+            RuntimeException failure = null;
+            for (ChangeListener<User> listener : listeners) {
+                try {
+                    listener.afterCommit();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void index(Long id, SearchKey key) {
+        searchKeys.put(id, key);
+        for (String gram : key.grams()) {
+            Postings postings = trigrams.computeIfAbsent(gram, g -> new Postings());
+            if (postings.ids.add(id)) {
+                postings.size++;
+            }
+        }
+    }
+
+    private void unindex(Long id, SearchKey key) {
+        if (key == null) {
+            return;
+        }
+        searchKeys.remove(id);
+        for (String gram : key.grams()) {
+            trigrams.computeIfPresent(gram, (g, postings) -> {
+                if (postings.ids.remove(id)) {
+                    postings.size--;
+                }
+                return postings.size == 0 ? null : postings;
+            });
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Id-ordered posting list for one trigram. The size is tracked separately because counting
+     * a skip list is linear; it is only written under the repository's write lock.
+     */
+    private static final class Postings {
+        final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+        volatile int size;
+    }
+
+    /**
+     * Lower-cased copy of the searchable fields of one user.
+     */
+    private record SearchKey(String name, String email) {
+
+        static SearchKey of(User user) {
+            return new SearchKey(lower(user.getName()), lower(user.getEmail()));
+        }
+
+        boolean contains(String needle) {
+            return name.contains(needle) || email.contains(needle);
+        }
+
+        Set<String> grams() {
+            Set<String> grams = UserRepository.grams(name);
+            grams.addAll(UserRepository.grams(email));
+            return grams;
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.karate.repository;
+
+/**
+ * Thrown by a conditional update when the stored record has moved on from the version the
+ * caller based its change on.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(Long id, long currentVersion) {
+        super("Record " + id + " is at version " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.karate.token;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues and verifies the HS256 JWTs handed out by {@code /api/token/generate}.
+ *
+ * Both directions work on pooled byte buffers: the encoded header is computed once, the
+ * payload is written digit by digit, base64url is encoded and decoded by table lookup and the
+ * HMAC is written into a reused array. Issuing a token allocates only the returned string;
+ * verifying one allocates nothing. The buffers and their {@link Mac} are borrowed from a small
+ * pool rather than held in thread-locals, which would build a fresh set for every request when
+ * requests run on virtual threads.
+ *
+ * Verification is lenient about the base64 flavour (standard or URL-safe alphabet, with or
+ * without padding), so hand-written tokens in tests keep working.
+ */
+public class JwtCodec {
+
+    /**
+     * Outcome of {@link #verify(String)}, checked in declaration order.
+     */
+    public enum Status {
+        VALID,
+        /** Not three dot-separated segments. */
+        INVALID_TOKEN,
+        /** The header is undecodable or not a JWT header. */
+        INVALID_HEADER,
+        /** The payload is undecodable or lacks {@code sub}, {@code iat} or {@code exp}. */
+        INVALID_PAYLOAD,
+        EXPIRED,
+        /** The signature is not the HMAC of header and payload under our secret. */
+        INVALID_SIGNATURE
+    }
+
+    static final String ALGORITHM = "HmacSHA256";
+    static final String SUBJECT = "karate-test";
+
+    private static final int SIGNATURE_BYTES = 32;
+
+    // The base64 tables come first: the constants below are encoded with them
+    private static final byte[] ENCODE = ascii("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_");
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+        }
+        DECODE['+'] = 62;
+        DECODE['/'] = 63;
+    }
+
+    private static final byte[] ENCODED_HEADER = encode(ascii("{\"typ\":\"JWT\",\"alg\":\"HS256\"}"));
+    private static final byte[] PAYLOAD_PREFIX = ascii("{\"sub\":\"" + SUBJECT + "\",\"iat\":");
+    private static final byte[] EXP_FIELD = ascii(",\"exp\":");
+    private static final byte[] JTI_FIELD = ascii(",\"jti\":");
+
+    private static final byte[] TYP_JWT = ascii("\"typ\":\"JWT\"");
+    private static final byte[] ALG = ascii("\"alg\":");
+    private static final byte[] SUB = ascii("\"sub\"");
+    private static final byte[] IAT = ascii("\"iat\"");
+    private static final byte[] EXP = ascii("\"exp\"");
+    private static final byte[] EXP_VALUE = ascii("\"exp\":");
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final Clock clock;
+    /** Idle scratch space; more is created under contention and dropped when the pool is full. */
+    private final ArrayBlockingQueue<Scratch> pool =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+    /** Token ids; a random start keeps tokens from different runs apart. */
+    private final AtomicLong tokenIds = new AtomicLong(ThreadLocalRandom.current().nextLong(1L << 48));
+
+    public JwtCodec(byte[] secret, Duration ttl, Clock clock) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlSeconds = ttl.toSeconds();
+        this.clock = clock;
+        pool.offer(new Scratch(newMac())); // Fail at startup rather than on the first request
+    }
+
+    /**
+     * Returns a signed token issued now and valid for the configured time to live.
+     */
+    public String issue() {
+        long now = clock.millis() / 1000;
+        Scratch scratch = acquire();
+        try {
+            return issue(now, scratch);
+        } finally {
+            pool.offer(scratch);
+        }
+    }
+
+    private String issue(long now, Scratch buffers) {
+        byte[] payload = buffers.payload;
+        int payloadLength = put(payload, 0, PAYLOAD_PREFIX);
+        payloadLength = putLong(payload, payloadLength, now);
+        payloadLength = put(payload, payloadLength, EXP_FIELD);
+        payloadLength = putLong(payload, payloadLength, now + ttlSeconds);
+        // Tokens issued in the same second must still differ, or revoking one would revoke all
+        payloadLength = put(payload, payloadLength, JTI_FIELD);
+        payloadLength = putLong(payload, payloadLength, tokenIds.incrementAndGet());
+        payload[payloadLength++] = '}';
+
+        byte[] token = buffers.token;
+        int length = put(token, 0, ENCODED_HEADER);
+        token[length++] = '.';
+        length = encode(payload, payloadLength, token, length);
+        sign(buffers.mac, token, length, buffers.signature);
+        token[length++] = '.';
+        length = encode(buffers.signature, SIGNATURE_BYTES, token, length);
+        return new String(token, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Checks the structure, header, claims, expiry and signature of {@code token}, in that
+     * order, and reports the first check that fails.
+     */
+    public Status verify(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            return Status.INVALID_TOKEN;
+        }
+        Scratch scratch = acquire();
+        try {
+            return verify(token, firstDot, secondDot, scratch);
+        } finally {
+            pool.offer(scratch);
+        }
+    }
+
+    private Status verify(String token, int firstDot, int secondDot, Scratch buffers) {
+        byte[] decoded = buffers.decoded(firstDot);
+        int length = decode(token, 0, firstDot, decoded);
+        if (length < 0 || indexOf(decoded, length, TYP_JWT) < 0 || indexOf(decoded, length, ALG) < 0) {
+            return Status.INVALID_HEADER;
+        }
+
+        decoded = buffers.decoded(secondDot - firstDot);
+        length = decode(token, firstDot + 1, secondDot, decoded);
+        if (length < 0 || indexOf(decoded, length, SUB) < 0 || indexOf(decoded, length, IAT) < 0
+                || indexOf(decoded, length, EXP) < 0) {
+            return Status.INVALID_PAYLOAD;
+        }
+        long expiresAt = readLong(decoded, length, indexOf(decoded, length, EXP_VALUE));
+        if (expiresAt >= 0 && clock.millis() / 1000 > expiresAt) {
+            return Status.EXPIRED;
+        }
+
+        byte[] signed = buffers.signed(secondDot);
+        for (int i = 0; i < secondDot; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7f) {
+                return Status.INVALID_SIGNATURE;
+            }
+            signed[i] = (byte) c;
+        }
+        sign(buffers.mac, signed, secondDot, buffers.signature);
+        decoded = buffers.decoded(token.length() - secondDot);
+        length = decode(token, secondDot + 1, token.length(), decoded);
+        if (length != SIGNATURE_BYTES) {
+            return Status.INVALID_SIGNATURE;
+        }
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            difference |= decoded[i] ^ buffers.signature[i];
+        }
+        return difference == 0 ? Status.VALID : Status.INVALID_SIGNATURE;
+    }
+
+    /**
+     * Returns the {@code exp} claim of {@code token}, or -1 when it has none. Only meaningful for
+     * tokens that passed {@link #verify(String)}.
+     */
+    public long expiresAt(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = token.indexOf('.', firstDot + 1);
+        Scratch scratch = acquire();
+        try {
+            byte[] decoded = scratch.decoded(secondDot - firstDot);
+            int length = decode(token, firstDot + 1, secondDot, decoded);
+            int field = length < 0 ? -1 : indexOf(decoded, length, EXP_VALUE);
+            return field < 0 ? -1 : readLong(decoded, length, field);
+        } finally {
+            pool.offer(scratch);
+        }
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the decoded signature of {@code token}. Signatures are HMACs, so
+     * this identifies a token compactly without keeping or hashing the whole string.
+     *
+     * The hash is taken over the signature bytes rather than their text because
+     * {@link #verify(String)} accepts every spelling of them: padded, in the standard alphabet,
+     * or with the unused low bits of the last character set. All of those must map to the same
+     * revocation and cache entry. Characters outside both alphabets are hashed as they are;
+     * such tokens never verify.
+     */
+    public static long fingerprint(String token) {
+        long hash = 0xcbf29ce484222325L;
+        int end = token.length();
+        while (end > 0 && token.charAt(end - 1) == '=') {
+            end--;
+        }
+        int bits = 0;
+        int count = 0;
+        for (int i = token.lastIndexOf('.') + 1; i < end; i++) {
+            char c = token.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                hash = (hash ^ c) * 0x100000001b3L;
+                continue;
+            }
+            bits = bits << 6 | value;
+            count += 6;
+            if (count >= 8) {
+                count -= 8;
+                hash = (hash ^ (bits >>> count & 0xff)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Decodes segment {@code index} (0 for the header, 1 for the payload) of a token that
+     * passed {@link #verify(String)}, for display.
+     */
+    public String decodeSegment(String token, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = token.indexOf('.', start) + 1;
+        }
+        int end = token.indexOf('.', start);
+        end = end < 0 ? token.length() : end;
+        byte[] decoded = new byte[end - start];
+        int length = decode(token, start, end, decoded);
+        return length < 0 ? "" : new String(decoded, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private Scratch acquire() {
+        Scratch scratch = pool.poll();
+        return scratch != null ? scratch : new Scratch(newMac());
+    }
+
+    private static void sign(Mac mac, byte[] input, int length, byte[] signature) {
+        mac.update(input, 0, length);
+        try {
+            mac.doFinal(signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Base64url-encodes {@code length} bytes of {@code src} without padding into {@code dst}
+     * at {@code offset}; returns the new end of {@code dst}.
+     */
+    static int encode(byte[] src, int length, byte[] dst, int offset) {
+        int i = 0;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            dst[offset++] = ENCODE[bits >>> 18];
+            dst[offset++] = ENCODE[bits >>> 12 & 0x3f];
+            dst[offset++] = ENCODE[bits >>> 6 & 0x3f];
+            dst[offset++] = ENCODE[bits & 0x3f];
+        }
+        int remaining = length - i;
+        if (remaining > 0) {
+            int bits = (src[i] & 0xff) << 16 | (remaining == 2 ? (src[i + 1] & 0xff) << 8 : 0);
+            dst[offset++] = ENCODE[bits >>> 18];
+            dst[offset++] = ENCODE[bits >>> 12 & 0x3f];
+            if (remaining == 2) {
+                dst[offset++] = ENCODE[bits >>> 6 & 0x3f];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Decodes {@code src[from, to)} as base64 in either alphabet, padded or not, into
+     * {@code dst}; returns the decoded length, or -1 if the segment is not valid base64.
+     */
+    static int decode(CharSequence src, int from, int to, byte[] dst) {
+        while (to > from && src.charAt(to - 1) == '=') {
+            to--;
+        }
+        int bits = 0;
+        int count = 0;
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                dst[length++] = (byte) (bits >> 16);
+                dst[length++] = (byte) (bits >> 8);
+                dst[length++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 1) {
+            return -1;
+        }
+        if (count == 2) {
+            dst[length++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            dst[length++] = (byte) (bits >> 10);
+            dst[length++] = (byte) (bits >> 2);
+        }
+        return length;
+    }
+
+    private static int indexOf(byte[] haystack, int length, byte[] needle) {
+        outer:
+        for (int i = 0; i <= length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the non-negative integer following the field name at {@code field}, skipping
+     * whitespace; returns -1 when there is none.
+     */
+    private static long readLong(byte[] json, int length, int field) {
+        int i = field + EXP_VALUE.length;
+        while (i < length && json[i] == ' ') {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < length && json[i] >= '0' && json[i] <= '9' && digits < 18; i++, digits++) {
+            value = value * 10 + (json[i] - '0');
+        }
+        return digits == 0 ? -1 : value;
+    }
+
+    private static int put(byte[] dst, int offset, byte[] src) {
+        System.arraycopy(src, 0, dst, offset, src.length);
+        return offset + src.length;
+    }
+
+    private static int putLong(byte[] dst, int offset, long value) {
+        if (value == 0) {
+            dst[offset] = '0';
+            return offset + 1;
+        }
+        int digits = 0;
+        for (long rest = value; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    private static byte[] encode(byte[] bytes) {
+        byte[] encoded = new byte[(bytes.length * 4 + 2) / 3];
+        encode(bytes, bytes.length, encoded, 0);
+        return encoded;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Scratch space for one call at a time; arrays only grow, so steady-state calls allocate
+     * nothing.
+     */
+    private static final class Scratch {
+        final Mac mac;
+        final byte[] payload = new byte[128];
+        final byte[] token = new byte[256];
+        final byte[] signature = new byte[SIGNATURE_BYTES];
+        private byte[] decoded = new byte[256];
+        private byte[] signed = new byte[256];
+
+        Scratch(Mac mac) {
+            this.mac = mac;
+        }
+
+        byte[] decoded(int encodedLength) {
+            if (decoded.length < encodedLength) {
+                decoded = new byte[encodedLength];
+            }
+            return decoded;
+        }
+
+        byte[] signed(int length) {
+            if (signed.length < length) {
+                signed = new byte[length];
+            }
+            return signed;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.karate.token;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens revoked before their expiry.
+ *
+ * Only the 64-bit {@link JwtCodec#fingerprint(String)} of each token and its expiry are kept,
+ * and entries are dropped once the token would have expired anyway, so the list stays small.
+ * A fingerprint collision could only reject a valid token, never accept a revoked one.
+ */
+public class RevocationList {
+
+    private final Clock clock;
+    private final ConcurrentHashMap<Long, Long> expiryByFingerprint = new ConcurrentHashMap<>();
+    /** Earliest expiry seen by the last sweep or add; a hint for when to sweep next. */
+    private volatile long nextExpiry = Long.MAX_VALUE;
+
+    public RevocationList(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Revokes {@code token}, which expires at {@code expiresAt} (epoch seconds).
+     */
+    public void revoke(String token, long expiresAt) {
+        long now = clock.millis() / 1000;
+        if (now > nextExpiry) {
+            long earliest = Long.MAX_VALUE;
+            for (Iterator<Long> it = expiryByFingerprint.values().iterator(); it.hasNext(); ) {
+                long expiry = it.next();
+                if (now > expiry) {
+                    it.remove();
+                } else {
+                    earliest = Math.min(earliest, expiry);
+                }
+            }
+            nextExpiry = earliest;
+        }
+        expiryByFingerprint.put(JwtCodec.fingerprint(token), expiresAt);
+        if (expiresAt < nextExpiry) {
+            nextExpiry = expiresAt;
+        }
+    }
+
+    public boolean isRevoked(String token) {
+        return !expiryByFingerprint.isEmpty() && expiryByFingerprint.containsKey(JwtCodec.fingerprint(token));
+    }
+
+    public int size() {
+        return expiryByFingerprint.size();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.karate.token;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of tokens that passed {@link JwtCodec#verify(String)}, together with the
+ * response already built for them, so validating the same token again is a hash lookup.
+ *
+ * Entries are keyed by {@link JwtCodec#fingerprint(String)} and keep the token to rule out
+ * collisions. An entry is dropped once its token reaches {@code exp}: lazily when it is looked
+ * up, and in a sweep whenever the earliest expiry has passed or the cache is full.
+ */
+public class TokenCache {
+
+    /**
+     * Counters for {@link #stats()}.
+     */
+    public record Stats(long hits, long misses, int size) {}
+
+    private record Entry(String token, long expiresAt, Map<String, Object> response) {}
+
+    private final int maxEntries;
+    private final Clock clock;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    /** Earliest expiry seen by the last sweep or put; a hint for when to sweep next. */
+    private volatile long nextExpiry = Long.MAX_VALUE;
+
+    public TokenCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the response cached for {@code token}, or {@code null} if it has to be verified.
+     */
+    public Map<String, Object> get(String token) {
+        long fingerprint = JwtCodec.fingerprint(token);
+        Entry entry = entries.get(fingerprint);
+        if (entry != null && entry.token().equals(token)) {
+            if (now() <= entry.expiresAt()) {
+                hits.increment();
+                return entry.response();
+            }
+            entries.remove(fingerprint, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the response for a verified {@code token} until {@code expiresAt} (epoch seconds).
+     */
+    public void put(String token, long expiresAt, Map<String, Object> response) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long now = now();
+        if (now > nextExpiry || entries.size() >= maxEntries) {
+            evictExpired(now);
+        }
+        if (entries.size() >= maxEntries) {
+            // Still full of live tokens: make room with an arbitrary victim
+            Iterator<Long> victims = entries.keySet().iterator();
+            if (victims.hasNext()) {
+                entries.remove(victims.next());
+            }
+        }
+        entries.put(JwtCodec.fingerprint(token), new Entry(token, expiresAt, response));
+        if (expiresAt < nextExpiry) {
+            nextExpiry = expiresAt;
+        }
+    }
+
+    public void invalidate(String token) {
+        entries.remove(JwtCodec.fingerprint(token));
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), entries.size());
+    }
+
+    private void evictExpired(long now) {
+        long earliest = Long.MAX_VALUE;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            long expiresAt = it.next().expiresAt();
+            if (now > expiresAt) {
+                it.remove();
+            } else if (expiresAt < earliest) {
+                earliest = expiresAt;
+            }
+        }
+        nextExpiry = earliest;
+    }
+
+    private long now() {
+        return clock.millis() / 1000;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.karate.token;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(TokenProperties.class)
+public class TokenConfiguration {
+
+    @Bean
+    public JwtCodec jwtCodec(TokenProperties properties) {
+        return new JwtCodec(properties.getSecret().getBytes(StandardCharsets.UTF_8), properties.getTtl(), Clock.systemUTC());
+    }
+
+    @Bean
+    public TokenCache tokenCache(TokenProperties properties) {
+        return new TokenCache(properties.getCacheSize(), Clock.systemUTC());
+    }
+
+    @Bean
+    public RevocationList revocationList() {
+        return new RevocationList(Clock.systemUTC());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.karate.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the JWTs issued by the token endpoints, bound from {@code sandbox.token.*}.
+ */
+@ConfigurationProperties(prefix = "sandbox.token")
+public class TokenProperties {
+
+    /** HMAC-SHA256 key; tokens signed with another key are rejected. */
+    private String secret = "karate-sandbox-local-signing-key";
+    private Duration ttl = Duration.ofHours(1);
+    /** Verified tokens remembered by the validation endpoint; 0 disables the cache. */
+    private int cacheSize = 10_000;
+
+    // Getters and setters
+    public String getSecret() { return secret; }
+    public void setSecret(String secret) { this.secret = secret; }
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+    public int getCacheSize() { return cacheSize; }
+    public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+}
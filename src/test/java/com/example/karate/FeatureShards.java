@@ -0,0 +1,99 @@
+package com.example.karate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Splits features into shards of roughly equal run time, using the durations recorded in the
+ * Karate JSON reports of a previous run.
+ *
+ * Features are placed longest first, each on the shard with the least work so far. This keeps
+ * a slow feature from landing on an already busy shard, and leaves every shard ordered longest
+ * first, so the slow features start before the short ones fill the threads.
+ */
+final class FeatureShards {
+
+    private static final String REPORT_SUFFIX = ".karate-json.txt";
+
+    /**
+     * Duration assumed for a feature when no previous run recorded any.
+     */
+    static final double DEFAULT_MILLIS = 1000;
+
+    private FeatureShards() {
+    }
+
+    /**
+     * Reads the run time of each top-level feature from the {@code *.karate-json.txt} reports
+     * in {@code reportDir}, keyed by classpath-relative path. Returns an empty map when the
+     * directory does not exist.
+     */
+    static Map<String, Double> durations(Path reportDir) {
+        Map<String, Double> durations = new HashMap<>();
+        if (!Files.isDirectory(reportDir)) {
+            return durations;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        try (Stream<Path> files = Files.list(reportDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(REPORT_SUFFIX)).toList()) {
+                JsonNode report = mapper.readTree(file.toFile());
+                if (report.path("callDepth").asInt() == 0 && report.hasNonNull("relativePath")) {
+                    durations.merge(report.get("relativePath").asText(), report.path("durationMillis").asDouble(), Double::sum);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read Karate reports in " + reportDir, e);
+        }
+        return durations;
+    }
+
+    /**
+     * Splits {@code features} into {@code count} shards. Features with no recorded duration
+     * are weighted as the mean of those that have one. Ties are broken by path, so every
+     * runner node computes the same plan from the same reports.
+     */
+    static List<List<String>> plan(List<String> features, Map<String, Double> durations, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + count);
+        }
+        double unknown = features.stream()
+                .filter(durations::containsKey)
+                .mapToDouble(durations::get)
+                .average()
+                .orElse(DEFAULT_MILLIS);
+
+        List<String> ordered = features.stream()
+                .distinct()
+                .sorted(Comparator.comparingDouble((String f) -> durations.getOrDefault(f, unknown)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+
+        List<List<String>> shards = new ArrayList<>(count);
+        double[] loads = new double[count];
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (String feature : ordered) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            shards.get(lightest).add(feature);
+            loads[lightest] += durations.getOrDefault(feature, unknown);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.karate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the duration-balanced split of {@link FeatureShards}.
+ */
+class FeatureShardsTests {
+
+    @Test
+    void placesLongestFeaturesFirstOnTheLightestShard() {
+        Map<String, Double> durations = Map.of("a", 1300.0, "b", 820.0, "c", 790.0, "d", 550.0, "e", 270.0, "f", 240.0);
+
+        List<List<String>> shards = FeatureShards.plan(List.of("f", "e", "d", "c", "b", "a"), durations, 2);
+
+        assertEquals(List.of(List.of("a", "d", "f"), List.of("b", "c", "e")), shards);
+    }
+
+    @Test
+    void weighsUnknownFeaturesAsTheMeanAndBreaksTiesByPath() {
+        Map<String, Double> durations = Map.of("slow", 900.0, "fast", 100.0);
+
+        List<List<String>> shards = FeatureShards.plan(List.of("new2", "fast", "new1", "slow"), durations, 2);
+
+        // new1 and new2 weigh 500ms each
+        assertEquals(List.of(List.of("slow", "fast"), List.of("new1", "new2")), shards);
+    }
+
+    @Test
+    void splitsByCountWithoutRecordedDurations() {
+        List<List<String>> shards = FeatureShards.plan(List.of("a", "b", "c", "d", "e"), Map.of(), 3);
+
+        assertEquals(List.of(List.of("a", "d"), List.of("b", "e"), List.of("c")), shards);
+        assertEquals(List.of(List.of(), List.of()), FeatureShards.plan(List.of(), Map.of(), 2));
+        assertThrows(IllegalArgumentException.class, () -> FeatureShards.plan(List.of("a"), Map.of(), 0));
+    }
+
+    @Test
+    void readsTopLevelFeatureDurationsFromKarateReports(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("com.example.karate.users.users-crud.karate-json.txt"),
+                "{\"relativePath\":\"com/example/karate/users/users-crud.feature\",\"callDepth\":0,\"durationMillis\":791.5}");
+        Files.writeString(dir.resolve("com.example.karate.config.token-helper.karate-json.txt"),
+                "{\"relativePath\":\"com/example/karate/config/token-helper.feature\",\"callDepth\":1,\"durationMillis\":32.0}");
+        Files.writeString(dir.resolve("com.example.karate.users.users-crud.json"), "[]");
+
+        assertEquals(Map.of("com/example/karate/users/users-crud.feature", 791.5), FeatureShards.durations(dir));
+        assertEquals(Map.of(), FeatureShards.durations(dir.resolve("missing")));
+    }
+}
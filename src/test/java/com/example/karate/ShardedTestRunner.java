@@ -0,0 +1,95 @@
+package com.example.karate;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+import com.intuit.karate.core.FeatureCall;
+import com.intuit.karate.resource.ResourceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Karate runner that executes one shard of the feature files, so CI can fan a suite out across
+ * runner nodes that finish at roughly the same time. Shards are balanced on the per-feature
+ * durations in the Karate JSON reports of a previous run, and each shard runs its longest
+ * features first.
+ *
+ * Every node must see the same reports to compute the same split; restore the merged
+ * {@code target/karate-reports} of the last run (all shards) before running. Without reports
+ * the features are split evenly by count.
+ *
+ * Usage:
+ * - mvn test -Pkarate-sharded -Dkarate.shard.total=3 -Dkarate.shard.index=0
+ * - mvn test -Pkarate-sharded -Dkarate.shard.total=3 -Dkarate.shard.index=1 -Dkarate.shard.tags=@smoke
+ *
+ * Properties:
+ * - karate.shard.index: zero-based shard to run (default 0)
+ * - karate.shard.total: number of shards (default 1)
+ * - karate.shard.timings: directory with the previous {@code *.karate-json.txt} reports (default target/karate-reports)
+ * - karate.shard.threads: parallel threads within the shard (default 6)
+ * - karate.shard.tags: Karate tag expression to filter scenarios (optional)
+ *
+ * Reports generated:
+ * - target/karate-reports (HTML, Cucumber JSON, JUnit XML)
+ */
+public class ShardedTestRunner {
+
+    private static final String FEATURES = "classpath:com/example/karate";
+
+    private final int index = Integer.getInteger("karate.shard.index", 0);
+    private final int total = Integer.getInteger("karate.shard.total", 1);
+    private final Path timings = Path.of(System.getProperty("karate.shard.timings", "target/karate-reports"));
+    private final int threads = Integer.getInteger("karate.shard.threads", 6);
+    private final String tags = System.getProperty("karate.shard.tags");
+
+    @Test
+    void testShard() {
+        assertTrue(index >= 0 && index < total,
+                String.format("karate.shard.index must be in [0, %d): %d", total, index));
+
+        List<String> features = ResourceUtils.findFeatureFiles(new File("").getAbsoluteFile(), List.of(FEATURES), null)
+                .stream()
+                .map((FeatureCall call) -> call.feature.getResource().getRelativePath())
+                .toList();
+        // Read before the run: Karate moves the previous report directory aside when it starts
+        Map<String, Double> durations = FeatureShards.durations(timings);
+        List<List<String>> plan = FeatureShards.plan(features, durations, total);
+        printPlan(plan, durations);
+
+        List<String> shard = plan.get(index);
+        if (shard.isEmpty()) {
+            return;
+        }
+        Runner.Builder<?> runner = Runner.path(shard.stream().map(f -> "classpath:" + f).toList())
+                .outputCucumberJson(true)
+                .outputJunitXml(true)
+                .outputHtmlReport(true)
+                .reportDir("target/karate-reports");
+        if (tags != null && !tags.isBlank()) {
+            // One expression, as with --tags: a comma inside it means OR, separate arguments mean AND
+            runner.tags(tags);
+        }
+        Results results = runner.parallel(threads);
+
+        assertEquals(0, results.getFailCount(),
+                String.format("Karate shard %d/%d failed! Failed scenarios: %d. Details: %s",
+                        index, total, results.getFailCount(), results.getErrorMessages()));
+    }
+
+    private void printPlan(List<List<String>> plan, Map<String, Double> durations) {
+        System.out.printf("Karate shard %d of %d, %d features with recorded durations%n", index, total, durations.size());
+        for (int i = 0; i < plan.size(); i++) {
+            double known = plan.get(i).stream().mapToDouble(f -> durations.getOrDefault(f, 0.0)).sum();
+            System.out.printf("%s shard %d: %d features, %.0f ms recorded%n",
+                    i == index ? "*" : " ", i, plan.get(i).size(), known);
+            if (i == index) {
+                plan.get(i).forEach(f -> System.out.printf("    %s%n", f));
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.karate.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide source of auth headers for the Karate suites, shared by every runner thread.
+ *
+ * A token is fetched from the token service once and reused until shortly before its
+ * {@code exp}. Refreshing is single-flight: one caller fetches while the others keep using the
+ * current token, or wait for the fetch when there is no usable token at all. This brings token
+ * calls down from one per scenario to one per token lifetime, which matters against the
+ * rate-limited token services of the shared environments.
+ *
+ * Called from {@code helpers/auth-utils.js}:
+ * <pre>
+ * Java.type('com.example.karate.config.SharedTokenProvider').headers(config.tokenUrl, config.tokenConfig)
+ * </pre>
+ */
+public final class SharedTokenProvider {
+
+    static final String HEADER = "iam-claimsetjwt";
+
+    /** Refresh this long before {@code exp}; tokens in flight must not expire on the server. */
+    private static final Duration REFRESH_MARGIN = Duration.ofSeconds(
+            Long.getLong("karate.token.refresh-margin-seconds", 60));
+    /** Lifetime assumed for tokens that carry no readable {@code exp}. */
+    private static final Duration FALLBACK_LIFETIME = Duration.ofMinutes(5);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient CLIENT = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private static final ConcurrentMap<String, SharedTokenProvider> PROVIDERS = new ConcurrentHashMap<>();
+
+    private record Token(String value, Instant refreshAt, Instant expiresAt) {}
+
+    private final URI tokenUrl;
+    private final String requestBody;
+    private final HttpClient client;
+    private final Clock clock;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicLong fetches = new AtomicLong();
+    private volatile Token token;
+
+    SharedTokenProvider(URI tokenUrl, String requestBody, HttpClient client, Clock clock) {
+        this.tokenUrl = tokenUrl;
+        this.requestBody = requestBody;
+        this.client = client;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the auth headers for {@code tokenUrl}, fetching a token with {@code tokenConfig}
+     * as the request body when there is no current one. Callers with different URLs or
+     * configurations get separate tokens.
+     */
+    public static Map<String, Object> headers(String tokenUrl, Map<String, Object> tokenConfig) {
+        String body = json(tokenConfig);
+        return PROVIDERS.computeIfAbsent(tokenUrl + ' ' + body,
+                key -> new SharedTokenProvider(URI.create(tokenUrl), body, CLIENT, Clock.systemUTC())).headers();
+    }
+
+    Map<String, Object> headers() {
+        return Map.of(HEADER, token());
+    }
+
+    String token() {
+        Token current = token;
+        Instant now = clock.instant();
+        if (current != null && now.isBefore(current.refreshAt())) {
+            return current.value();
+        }
+        boolean usable = current != null && now.isBefore(current.expiresAt());
+        if (usable && !refreshLock.tryLock()) {
+            // Someone else is refreshing; the current token is still good for a while
+            return current.value();
+        }
+        if (!usable) {
+            refreshLock.lock();
+        }
+        try {
+            current = token;
+            if (current == null || !clock.instant().isBefore(current.refreshAt())) {
+                current = fetch();
+                token = current;
+            }
+            return current.value();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Number of tokens fetched from the token service so far.
+     */
+    long fetches() {
+        return fetches.get();
+    }
+
+    private Token fetch() {
+        fetches.incrementAndGet();
+        HttpRequest request = HttpRequest.newBuilder(tokenUrl)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Token request to " + tokenUrl + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while requesting a token from " + tokenUrl, e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Token request to " + tokenUrl + " returned " + response.statusCode()
+                    + ": " + response.body());
+        }
+
+        String value;
+        try {
+            value = MAPPER.readTree(response.body()).path(HEADER).asText(null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Token response from " + tokenUrl + " is not JSON: " + response.body(), e);
+        }
+        if (value == null) {
+            throw new IllegalStateException("Token response from " + tokenUrl + " has no " + HEADER + ": " + response.body());
+        }
+
+        Instant now = clock.instant();
+        Instant expiresAt = expiry(value);
+        if (expiresAt == null) {
+            expiresAt = now.plus(FALLBACK_LIFETIME);
+        }
+        // Short-lived tokens refresh halfway through rather than immediately
+        Duration margin = Duration.between(now, expiresAt).dividedBy(2);
+        if (margin.compareTo(REFRESH_MARGIN) > 0) {
+            margin = REFRESH_MARGIN;
+        }
+        return new Token(value, expiresAt.minus(margin), expiresAt);
+    }
+
+    /**
+     * Reads the {@code exp} claim of a JWT without verifying it, or returns {@code null}.
+     */
+    static Instant expiry(String jwt) {
+        String[] parts = jwt.split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        try {
+            JsonNode exp = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1].replace('+', '-').replace('/', '_')))
+                    .get("exp");
+            return exp != null && exp.canConvertToLong() ? Instant.ofEpochSecond(exp.asLong()) : null;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static String json(Map<String, Object> value) {
+        try {
+            return MAPPER.writeValueAsString(value == null ? Map.of() : value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.karate.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SharedTokenProvider} against a stub token service.
+ */
+class SharedTokenProviderTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final AtomicInteger issued = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile int status = 200;
+    private HttpServer server;
+    private SharedTokenProvider provider;
+
+    @BeforeEach
+    void startTokenService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/token/generate", exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Tokens live for ten minutes from the stub clock's point of view
+            long exp = clock.instant().plus(Duration.ofMinutes(10)).getEpochSecond();
+            String claims = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(("{\"n\":" + issued.incrementAndGet() + ",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+            byte[] body = ("{\"iam-claimsetjwt\":\"h." + claims + ".s\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        URI url = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/token/generate");
+        provider = new SharedTokenProvider(url, "{}", HttpClient.newHttpClient(), clock);
+    }
+
+    @AfterEach
+    void stopTokenService() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentCallersShareOneFetch() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tokens.add(callers.submit(provider::token));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            String first = tokens.get(0).get();
+            for (Future<String> token : tokens) {
+                assertEquals(first, token.get());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, provider.fetches());
+        assertEquals(Map.of(SharedTokenProvider.HEADER, provider.token()), provider.headers());
+        assertEquals(1, provider.fetches());
+    }
+
+    @Test
+    void refreshesShortlyBeforeExpiry() {
+        String first = provider.token();
+
+        clock.advance(Duration.ofMinutes(8));
+        assertEquals(first, provider.token());
+
+        // Inside the one-minute refresh margin
+        clock.advance(Duration.ofSeconds(90));
+        String second = provider.token();
+        assertNotEquals(first, second);
+        assertEquals(2, provider.fetches());
+        assertEquals(second, provider.token());
+    }
+
+    @Test
+    void failedFetchIsRetriedByTheNextCaller() {
+        status = 503;
+        IllegalStateException e = assertThrows(IllegalStateException.class, provider::token);
+        assertTrue(e.getMessage().contains("503"), e.getMessage());
+
+        status = 200;
+        assertNotNull(provider.token());
+        assertEquals(2, provider.fetches());
+    }
+
+    @Test
+    void readsExpiryFromUnverifiedClaims() {
+        String claims = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"exp\":1767225600}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Instant.parse("2026-01-01T00:00:00Z"), SharedTokenProvider.expiry("h." + claims + ".s"));
+        assertNull(SharedTokenProvider.expiry("opaque-token"));
+        assertNull(SharedTokenProvider.expiry("h.%%%.s"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.karate.controller;
+
+import com.example.karate.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ResponseFormats} and the entries {@link ResponseCache} renders with them.
+ */
+class ResponseFormatsTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ResponseFormats formats = new ResponseFormats(objectMapper);
+
+    @Test
+    void picksTheMostPreferredAcceptedFormat() {
+        assertEquals(ResponseFormats.CBOR, negotiate("application/cbor"));
+        assertEquals(ResponseFormats.SMILE, negotiate("application/json;q=0.5, application/x-jackson-smile"));
+        assertEquals(ResponseFormats.CBOR, negotiate("text/html, application/cbor;q=0.9, */*;q=0.1"));
+        assertEquals(ResponseFormats.CBOR, negotiate("application/cbor, application/json"));
+        assertEquals(MediaType.APPLICATION_JSON, negotiate("application/*"));
+    }
+
+    @Test
+    void fallsBackToJson() {
+        assertEquals(MediaType.APPLICATION_JSON, negotiate(null));
+        assertEquals(MediaType.APPLICATION_JSON, negotiate("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, negotiate("text/html"));
+        assertEquals(MediaType.APPLICATION_JSON, negotiate("application/cbor;q=0"));
+        assertEquals(MediaType.APPLICATION_JSON, negotiate("not a media type"));
+    }
+
+    @Test
+    void rendersEachFormatReadableByItsOwnMapper() throws Exception {
+        List<Product> products = List.of(
+                new Product(1L, "Laptop", "High-performance laptop", new BigDecimal("999.99"), "Electronics", 10));
+        ResponseEntity<List<Product>> response = ResponseEntity.ok().header("X-Next-Cursor", "abc").body(products);
+
+        ResponseCache.Entry json = ResponseCache.render(formats.json(), response);
+        for (String accept : List.of("application/x-jackson-smile", "application/cbor")) {
+            ResponseFormats.Format format = formats.negotiate(request(accept));
+            ResponseCache.Entry entry = ResponseCache.render(format, response);
+
+            assertEquals(format.mediaType(), entry.headers().getContentType());
+            assertEquals(List.of(HttpHeaders.ACCEPT), entry.headers().getVary());
+            assertEquals("abc", entry.headers().getFirst("X-Next-Cursor"));
+            assertTrue(entry.body().length < json.body().length, accept);
+            Product decoded = format.mapper().readValue(entry.body(), Product[].class)[0];
+            assertEquals(new BigDecimal("999.99"), decoded.getPrice());
+            assertEquals("Electronics", decoded.getCategory());
+        }
+    }
+
+    @Test
+    void keepsEtagsApartPerFormat() {
+        ResponseCache cache = new ResponseCache(DataSize.ofMegabytes(1));
+        String json = cache.collectionTag("products", 7, formats.json());
+        String cbor = cache.collectionTag("products", 7, formats.negotiate(request("application/cbor")));
+
+        assertNotEquals(json, cbor);
+        assertTrue(json.startsWith("W/\"") && json.endsWith("-products-7\""), json);
+    }
+
+    private MediaType negotiate(String accept) {
+        return formats.negotiate(request(accept)).mediaType();
+    }
+
+    private static ServletWebRequest request(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (accept != null) {
+            request.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        return new ServletWebRequest(request);
+    }
+}
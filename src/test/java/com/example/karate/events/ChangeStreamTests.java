@@ -0,0 +1,296 @@
+package com.example.karate.events;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.User;
+import com.example.karate.repository.ChangeEvent;
+import com.example.karate.repository.ChangeListener;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ChangeStream} and its {@link EventRing}, fed by real repositories.
+ */
+class ChangeStreamTests {
+
+    private final ProductRepository products = new ProductRepository();
+    private final UserRepository users = new UserRepository();
+    private ChangeStream stream = stream(8);
+
+    @AfterEach
+    void stopStream() {
+        stream.stop();
+    }
+
+    @Test
+    void sendsEachWriteAsAnEventInCommitOrder() throws Exception {
+        Frames frames = new Frames();
+        stream.subscribe(null, null, frames);
+
+        Product laptop = products.create(new Product(null, "Laptop", null, new BigDecimal("999.99"), "Electronics", 10));
+        users.create(new User(null, "Jane Smith", "jane.smith@example.com", "user", true));
+        products.update(laptop.getId(), null, product -> {
+            product.setQuantity(9);
+            return product;
+        });
+        products.deleteById(laptop.getId());
+
+        assertEquals("products.created", frames.next().event());
+        assertEquals("users.created", frames.next().event());
+        Frame updated = frames.next();
+        assertEquals("products.updated", updated.event());
+        assertTrue(updated.data().contains("\"quantity\":9"), updated.data());
+        assertEquals("products.deleted", frames.next().event());
+    }
+
+    @Test
+    void filtersByResource() throws Exception {
+        Frames frames = new Frames();
+        stream.subscribe(ChangeStream.USERS, null, frames);
+
+        products.create(new Product(null, "Mug", null, BigDecimal.ONE, "Home", 1));
+        users.create(new User(null, "Bob Johnson", "bob.johnson@example.com", "user", false));
+
+        Frame frame = frames.next();
+        assertEquals("users.created", frame.event());
+        assertTrue(frame.id().endsWith("-2"), frame.id());
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+        Frames first = new Frames();
+        ChangeStream.Subscription subscription = stream.subscribe(null, null, first);
+        for (int i = 0; i < 3; i++) {
+            products.create(new Product(null, "Product " + i, null, BigDecimal.ONE, "Home", i));
+        }
+        String lastSeen = first.next().id();
+        subscription.cancel();
+
+        Frames resumed = new Frames();
+        stream.subscribe(null, lastSeen, resumed);
+
+        assertEquals(stream.lastEventId().replaceAll("\\d+$", "2"), resumed.next().id());
+        assertEquals(stream.lastEventId(), resumed.next().id());
+    }
+
+    @Test
+    void resetsSubscribersThatResumeFromEventsNoLongerHeld() throws Exception {
+        Frames first = new Frames();
+        ChangeStream.Subscription subscription = stream.subscribe(null, null, first);
+        products.create(new Product(null, "First", null, BigDecimal.ONE, "Home", 1));
+        String lastSeen = first.next().id();
+        subscription.cancel();
+        for (int i = 0; i < 10; i++) {
+            products.create(new Product(null, "Product " + i, null, BigDecimal.ONE, "Home", i));
+        }
+        awaitHead(11);
+
+        Frames resumed = new Frames();
+        stream.subscribe(null, lastSeen, resumed);
+        Frame reset = resumed.next();
+        assertEquals("reset", reset.event());
+        assertEquals(stream.lastEventId(), reset.id());
+
+        // Ids from before a restart are reset the same way
+        Frames stale = new Frames();
+        stream.subscribe(null, "abc-3", stale);
+        assertEquals("reset", stale.next().event());
+    }
+
+    @Test
+    void slowSubscriberDoesNotHoldUpWritersOrOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        stream.subscribe(null, null, batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        });
+        Frames fast = new Frames();
+        stream.subscribe(null, null, fast);
+
+        // Fewer writes than the ring holds, so the fast subscriber cannot be lapped
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            products.create(new Product(null, "Product " + i, null, BigDecimal.ONE, "Home", i));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 6; i++) {
+            assertEquals("products.created", fast.next().event());
+        }
+        release.countDown();
+    }
+
+    @Test
+    void sendsTheSameFrameBytesToEverySubscriber() throws Exception {
+        List<byte[]> first = new ArrayList<>();
+        List<byte[]> second = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        stream.subscribe(null, null, batch -> { first.addAll(batch); delivered.countDown(); });
+        stream.subscribe(null, null, batch -> { second.addAll(batch); delivered.countDown(); });
+
+        products.create(new Product(null, "Mug", null, BigDecimal.ONE, "Home", 1));
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    void sendsHeartbeatsOnIdleStreams() throws Exception {
+        stream.stop();
+        stream = new ChangeStream(8, Duration.ofMillis(50), Jackson2ObjectMapperBuilder.json().build(), products, users);
+        stream.start();
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        stream.subscribe(null, null, received::addAll);
+
+        assertArrayEquals(ChangeStream.HEARTBEAT, received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void holdsBackEventsUntilTheWriteCommits() throws Exception {
+        stream.stop();
+        stream = new ChangeStream(8, Duration.ofMillis(10), Jackson2ObjectMapperBuilder.json().build(), products, users);
+        stream.start();
+        CountDownLatch announced = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Registered after the stream's own listener, so the change is queued before this blocks
+        products.addListener(event -> {
+            announced.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        stream.subscribe(null, null, received::addAll);
+        Thread writer = new Thread(() -> products.create(new Product(null, "Mug", null, BigDecimal.ONE, "Home", 1)));
+        writer.start();
+        assertTrue(announced.await(5, TimeUnit.SECONDS));
+
+        // Heartbeats wake the dispatcher meanwhile, but the product cannot be read back yet
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        while (System.nanoTime() < deadline) {
+            byte[] frame = received.poll(10, TimeUnit.MILLISECONDS);
+            assertTrue(frame == null || Arrays.equals(ChangeStream.HEARTBEAT, frame), "Event sent before commit");
+        }
+        release.countDown();
+        writer.join(5000);
+
+        byte[] frame;
+        do {
+            frame = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "No event within 5s");
+        } while (Arrays.equals(ChangeStream.HEARTBEAT, frame));
+        assertTrue(new String(frame, StandardCharsets.UTF_8).contains("event: products.created"));
+        assertEquals(1, products.findAll().size());
+    }
+
+    @Test
+    void keepsFlowingWhenAnEarlierListenerFailsAfterCommit() throws Exception {
+        stream.stop();
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        // Registered before the stream's listener, as persistence is, and fails once like a log sync
+        products.addListener(new ChangeListener<>() {
+            @Override
+            public void onChange(ChangeEvent<Product> event) {}
+
+            @Override
+            public void afterCommit() {
+                if (failNext.getAndSet(false)) {
+                    throw new UncheckedIOException(new IOException("sync failed"));
+                }
+            }
+        });
+        stream = stream(8);
+        Frames frames = new Frames();
+        stream.subscribe(null, null, frames);
+
+        assertThrows(UncheckedIOException.class,
+                () -> products.create(new Product(null, "Mug", null, BigDecimal.ONE, "Home", 1)));
+        // From another thread, so nothing left over on this one can commit the first change
+        Thread writer = new Thread(() -> products.create(new Product(null, "Lamp", null, BigDecimal.TEN, "Home", 1)));
+        writer.start();
+        writer.join(5000);
+
+        assertTrue(frames.next().data().contains("\"Mug\""));
+        assertTrue(frames.next().data().contains("\"Lamp\""));
+    }
+
+    @Test
+    void ringDropsFramesItHasLappedOver() {
+        EventRing ring = new EventRing(4);
+        for (long sequence = 1; sequence <= 6; sequence++) {
+            ring.add(new EventRing.Frame(sequence, "products", new byte[0]));
+        }
+
+        assertEquals(6, ring.head());
+        assertEquals(3, ring.oldest());
+        assertNull(ring.get(2));
+        assertEquals(3, ring.get(3).sequence());
+        assertNull(ring.get(7));
+        assertThrows(IllegalArgumentException.class, () -> ring.add(new EventRing.Frame(8, "products", new byte[0])));
+    }
+
+    private ChangeStream stream(int bufferSize) {
+        ChangeStream changeStream = new ChangeStream(bufferSize, Duration.ZERO, Jackson2ObjectMapperBuilder.json().build(),
+                products, users);
+        changeStream.start();
+        return changeStream;
+    }
+
+    private void awaitHead(long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!stream.lastEventId().endsWith("-" + sequence)) {
+            assertTrue(System.nanoTime() < deadline, "Events were not dispatched");
+            Thread.sleep(5);
+        }
+    }
+
+    private record Frame(String id, String event, String data) {}
+
+    /**
+     * Collects the frames sent to one subscription.
+     */
+    private static final class Frames implements ChangeStream.Sink {
+        private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(List<byte[]> batch) {
+            for (byte[] bytes : batch) {
+                String id = null, event = null, data = null;
+                for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+                    if (line.startsWith("id: ")) id = line.substring(4);
+                    if (line.startsWith("event: ")) event = line.substring(7);
+                    if (line.startsWith("data: ")) data = line.substring(6);
+                }
+                frames.add(new Frame(id, event, data));
+            }
+        }
+
+        Frame next() throws InterruptedException {
+            Frame frame = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "No event within 5s");
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.karate.load;
+
+import com.intuit.karate.RuntimeHook;
+import com.intuit.karate.core.ScenarioRuntime;
+import com.intuit.karate.http.HttpRequest;
+import com.intuit.karate.http.Response;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Karate hook that times every HTTP call a scenario makes and records it in an HdrHistogram per
+ * endpoint. Endpoints are named by method and path, with numeric path segments folded into
+ * {@code {id}} so that {@code GET /api/users/1} and {@code GET /api/users/2} share a histogram.
+ *
+ * Calls are timed on the scenario's thread; Karate makes them synchronously.
+ */
+class EndpointLatencies implements RuntimeHook {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    /** Latencies above this are clamped; no call in a load run should take a minute. */
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * One endpoint's calls so far; server errors are counted separately from the latencies.
+     */
+    record Snapshot(Histogram latencies, long serverErrors) {}
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> callStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void beforeHttpCall(HttpRequest request, ScenarioRuntime sr) {
+        callStart.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterHttpCall(HttpRequest request, Response response, ScenarioRuntime sr) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - callStart.get()[0]);
+        Endpoint endpoint = endpoints.computeIfAbsent(name(request), name -> new Endpoint());
+        endpoint.latencies.recordValue(Math.min(Math.max(micros, 1), MAX_MICROS));
+        if (response != null && response.getStatus() >= 500) {
+            endpoint.serverErrors.increment();
+        }
+    }
+
+    /**
+     * Everything recorded since the last call, by endpoint name.
+     */
+    Map<String, Snapshot> drain() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        endpoints.forEach((name, endpoint) -> snapshots.put(name,
+                new Snapshot(endpoint.latencies.getIntervalHistogram(), endpoint.serverErrors.sumThenReset())));
+        return snapshots;
+    }
+
+    static String name(HttpRequest request) {
+        String path = URI.create(request.getUrl()).getRawPath();
+        return request.getMethod() + " " + NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    private static final class Endpoint {
+        final Recorder latencies = new Recorder(MAX_MICROS, 3);
+        final LongAdder serverErrors = new LongAdder();
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.karate.load;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.karate.load.EndpointLatencies.Snapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.karate.Runner;
+import com.intuit.karate.Suite;
+import com.intuit.karate.core.FeatureCall;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.FeatureRuntime;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays the {@code @load} scenarios of the Karate suites as a closed-loop load model against a
+ * running instance, then reports throughput and latency percentiles per endpoint and fails when
+ * an endpoint exceeds the p95 or p99 budget or too many scenarios fail.
+ *
+ * Each virtual user runs the selected scenarios back to back until the run ends. Users start
+ * evenly over the ramp; only the time after the ramp is measured. All users share one Karate
+ * suite, so {@code callSingle} results are shared as they are in a normal run.
+ *
+ * Usage:
+ * - mvn test -Pkarate-load -Dload.users=50 -Dload.ramp=10s -Dload.duration=60s
+ * - mvn test -Pkarate-load -Dload.tags=@users -Dload.p95=100ms -Dload.p99=250ms
+ *
+ * Reports generated:
+ * - target/karate-load/load-report.json
+ */
+public class KarateLoadRunner {
+
+    private static final Path REPORT = Path.of("target", "karate-load", "load-report.json");
+
+    private final String features = System.getProperty("load.features", "classpath:com/example/karate");
+    private final String tags = System.getProperty("load.tags", "@load");
+    private final int users = Integer.getInteger("load.users", 20);
+    private final Duration ramp = duration("load.ramp", "10s");
+    private final Duration runTime = duration("load.duration", "60s");
+    private final Duration p95Budget = duration("load.p95", "250ms");
+    private final Duration p99Budget = duration("load.p99", "500ms");
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    @Test
+    void replayLoadModel() throws Exception {
+        ((Logger) LoggerFactory.getLogger("com.intuit.karate"))
+                .setLevel(Level.toLevel(System.getProperty("load.log-level"), Level.WARN));
+
+        EndpointLatencies latencies = new EndpointLatencies();
+        Suite suite = new Suite(Runner.path(features.split(","))
+                .tags(tags)
+                .hook(latencies)
+                .reportDir(REPORT.getParent().toString())
+                .backupReportDir(false)
+                .outputHtmlReport(false));
+        assertTrue(!suite.features.isEmpty(), "No features found in " + features);
+
+        LongAdder scenarios = new LongAdder();
+        LongAdder failures = new LongAdder();
+        List<String> failureMessages = new ArrayList<>();
+
+        long start = System.nanoTime();
+        long deadline = start + ramp.plus(runTime).toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        CountDownLatch done = new CountDownLatch(users);
+        for (int user = 0; user < users; user++) {
+            long startAt = start + ramp.toNanos() * user / users;
+            pool.execute(() -> {
+                try {
+                    sleepUntil(startAt);
+                    while (System.nanoTime() < deadline) {
+                        for (FeatureCall call : suite.features) {
+                            FeatureRuntime runtime = FeatureRuntime.of(suite, call);
+                            runtime.run();
+                            FeatureResult result = runtime.result;
+                            scenarios.add(result.getScenarioCount());
+                            if (result.isFailed()) {
+                                failures.add(result.getFailedCount());
+                                synchronized (failureMessages) {
+                                    if (failureMessages.size() < 10) {
+                                        failureMessages.add(result.getErrorMessages());
+                                    }
+                                }
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        // Discard what was recorded while users were still ramping up
+        sleepUntil(start + ramp.toNanos());
+        latencies.drain();
+        scenarios.reset();
+        failures.reset();
+        long measureStart = System.nanoTime();
+        done.await();
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        pool.shutdown();
+
+        List<String> violations = new ArrayList<>();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%n%-40s %9s %9s %9s %9s %9s %9s%n", "endpoint", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "5xx");
+        latencies.drain().forEach((name, snapshot) -> {
+            endpoints.put(name, summary(snapshot, seconds));
+            Histogram histogram = snapshot.latencies();
+            System.out.printf("%-40s %9.1f %9.2f %9.2f %9.2f %9.2f %9d%n", name,
+                    histogram.getTotalCount() / seconds, millis(histogram, 50), millis(histogram, 95),
+                    millis(histogram, 99), histogram.getMaxValue() / 1000.0, snapshot.serverErrors());
+            checkBudget(violations, name, "p95", histogram.getValueAtPercentile(95), p95Budget);
+            checkBudget(violations, name, "p99", histogram.getValueAtPercentile(99), p99Budget);
+        });
+        double errorRate = scenarios.sum() == 0 ? 0 : (double) failures.sum() / scenarios.sum();
+        if (errorRate > maxErrorRate) {
+            violations.add(String.format("%d of %d scenarios failed (max error rate %.2f%%): %s",
+                    failures.sum(), scenarios.sum(), maxErrorRate * 100, failureMessages));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("tags", tags);
+        report.put("users", users);
+        report.put("rampSeconds", ramp.toSeconds());
+        report.put("measuredSeconds", seconds);
+        report.put("scenarios", scenarios.sum());
+        report.put("failedScenarios", failures.sum());
+        report.put("budgets", Map.of("p95Millis", p95Budget.toMillis(), "p99Millis", p99Budget.toMillis()));
+        report.put("endpoints", endpoints);
+        report.put("violations", violations);
+        Files.createDirectories(REPORT.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+
+        assertTrue(!endpoints.isEmpty(), "No HTTP calls were recorded; is the API running?");
+        assertTrue(violations.isEmpty(), "Load budgets exceeded: " + String.join("; ", violations));
+    }
+
+    private static Map<String, Object> summary(Snapshot snapshot, double seconds) {
+        Histogram histogram = snapshot.latencies();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("serverErrors", snapshot.serverErrors());
+        summary.put("throughputPerSecond", histogram.getTotalCount() / seconds);
+        summary.put("p50Millis", millis(histogram, 50));
+        summary.put("p90Millis", millis(histogram, 90));
+        summary.put("p95Millis", millis(histogram, 95));
+        summary.put("p99Millis", millis(histogram, 99));
+        summary.put("p999Millis", millis(histogram, 99.9));
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static void checkBudget(List<String> violations, String endpoint, String percentile,
+                                    long micros, Duration budget) {
+        if (micros > TimeUnit.NANOSECONDS.toMicros(budget.toNanos())) {
+            violations.add(String.format("%s %s %.2f ms > %d ms", endpoint, percentile, micros / 1000.0, budget.toMillis()));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
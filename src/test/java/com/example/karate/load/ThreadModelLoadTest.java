@@ -0,0 +1,200 @@
+package com.example.karate.load;
+
+import com.example.karate.Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives the API with a fixed number of concurrent connections, once with requests served on
+ * Tomcat's platform thread pool and once on virtual threads, and reports throughput and latency
+ * percentiles for each.
+ *
+ * Each connection runs a closed loop of reads and creates; persistence is on with
+ * {@code fsync: ALWAYS}, so writes block on disk the way a durable deployment would. Results are
+ * printed and written to {@code target/load-test/<mode>.json}. Not part of the default build:
+ * run with {@code mvn -Pjava21,load-test test} (the virtual thread run is skipped before Java 21).
+ *
+ * Tunable with {@code -Dload.connections}, {@code -Dload.seconds}, {@code -Dload.warmup-seconds}
+ * and {@code -Dload.write-percent}.
+ */
+class ThreadModelLoadTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 1000);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+    private static final int WRITE_PERCENT = Integer.getInteger("load.write-percent", 20);
+    private static final String PRODUCT =
+            "{\"name\":\"Load\",\"description\":\"Load test\",\"price\":9.99,\"category\":\"Load\",\"quantity\":1}";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void platformThreads() throws Exception {
+        run("platform", false);
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21");
+        run("virtual", true);
+    }
+
+    private void run(String mode, boolean virtual) throws Exception {
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                new SpringApplicationBuilder(Application.class).run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--sandbox.persistence.enabled=true",
+                        "--sandbox.persistence.directory=" + directory.resolve(mode),
+                        "--sandbox.persistence.fsync=ALWAYS",
+                        "--logging.level.com.example.karate=WARN",
+                        "--logging.level.org.springframework=WARN")) {
+            URI base = URI.create("http://localhost:" + context.getWebServer().getPort() + "/api/products");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            drive(client, base, WARMUP, false);
+            Result result = drive(client, base, DURATION, true);
+            report(mode, result);
+
+            assertTrue(result.errors() <= result.requests() / 100,
+                    () -> mode + ": " + result.errors() + " of " + result.requests() + " requests failed");
+        }
+    }
+
+    /**
+     * Keeps {@link #CONNECTIONS} requests in flight until {@code duration} has passed.
+     */
+    private Result drive(HttpClient client, URI base, Duration duration, boolean record) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        LongAdder errors = new LongAdder();
+        Connection[] connections = new Connection[CONNECTIONS];
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[CONNECTIONS];
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connections[i] = new Connection();
+            loops[i] = loop(client, base, connections[i], deadline, errors);
+        }
+        CompletableFuture.allOf(loops).join();
+
+        long[] latencies = new long[0];
+        if (record) {
+            int total = 0;
+            for (Connection connection : connections) {
+                total += connection.count;
+            }
+            latencies = new long[total];
+            int offset = 0;
+            for (Connection connection : connections) {
+                System.arraycopy(connection.latencies, 0, latencies, offset, connection.count);
+                offset += connection.count;
+            }
+            Arrays.sort(latencies);
+        }
+        return new Result(latencies, errors.sum(), duration);
+    }
+
+    private CompletableFuture<Void> loop(HttpClient client, URI base, Connection connection,
+                                         long deadline, LongAdder errors) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(nextRequest(base), HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors.increment();
+                    } else {
+                        connection.record(System.nanoTime() - start);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, base, connection, deadline, errors));
+    }
+
+    private static HttpRequest nextRequest(URI base) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) < WRITE_PERCENT) {
+            return HttpRequest.newBuilder(base)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(PRODUCT))
+                    .build();
+        }
+        return HttpRequest.newBuilder(base.resolve("products/" + (1 + random.nextInt(3)))).GET().build();
+    }
+
+    private static void report(String mode, Result result) throws Exception {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mode", mode);
+        summary.put("java", Runtime.version().toString());
+        summary.put("connections", CONNECTIONS);
+        summary.put("seconds", DURATION.toSeconds());
+        summary.put("writePercent", WRITE_PERCENT);
+        summary.put("requests", result.requests());
+        summary.put("errors", result.errors());
+        summary.put("throughputPerSecond", Math.round(result.throughput()));
+        summary.put("p50Millis", result.percentileMillis(50));
+        summary.put("p99Millis", result.percentileMillis(99));
+        summary.put("maxMillis", result.percentileMillis(100));
+
+        Path output = Path.of("target", "load-test", mode + ".json");
+        Files.createDirectories(output.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), summary);
+        System.out.printf("%-8s %,9.0f req/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  (%d errors)%n",
+                mode, result.throughput(), result.percentileMillis(50), result.percentileMillis(99),
+                result.percentileMillis(100), result.errors());
+    }
+
+    /**
+     * Latencies of one connection's requests; a connection has one request in flight at a time.
+     */
+    private static final class Connection {
+        private long[] latencies = new long[1024];
+        private int count;
+
+        void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private record Result(long[] sortedLatencies, long errors, Duration duration) {
+
+        long requests() {
+            return sortedLatencies.length + errors;
+        }
+
+        double throughput() {
+            return sortedLatencies.length / (duration.toNanos() / 1e9);
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.karate.persistence;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.User;
+import com.example.karate.persistence.PersistenceProperties.FsyncPolicy;
+import com.example.karate.repository.ProductRepository;
+import com.example.karate.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restart tests for {@link StorePersistence}: state written through one instance must be
+ * restored by a fresh one opened on the same directory.
+ */
+class StorePersistenceTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresSnapshotAndReplaysLogTail() throws IOException {
+        Stores first = open(FsyncPolicy.ALWAYS);
+        Long kept = first.products.create(product("Kept", "10.00")).getId();
+        Long removed = first.products.create(product("Removed", "20.00")).getId();
+        first.persistence.snapshot();
+
+        // Everything below only exists in the log
+        first.products.update(kept, product -> {
+            product.setPrice(new BigDecimal("11.00"));
+            return product;
+        });
+        first.products.deleteById(removed);
+        Long user = first.users.create(new User(null, "Logged User", "logged@example.com", "user", true)).getId();
+        first.persistence.closeWithoutSnapshot();
+
+        Stores second = open(FsyncPolicy.ALWAYS);
+        assertEquals(new BigDecimal("11.00"), second.products.findById(kept).orElseThrow().getPrice());
+        assertTrue(second.products.findById(removed).isEmpty());
+        assertEquals("Logged User", second.users.findById(user).orElseThrow().getName());
+        assertEquals(List.of(kept), second.products.find("Test", new BigDecimal("10.00"), null).map(Product::getId).toList());
+        assertTrue(second.products.create(product("New", "1.00")).getId() > removed, "Ids must not be reused");
+        second.persistence.destroy();
+    }
+
+    @Test
+    void ignoresTornRecordAtTheEndOfTheLog() throws IOException {
+        Stores first = open(FsyncPolicy.NEVER);
+        Long id = first.products.create(product("Durable", "5.00")).getId();
+        first.persistence.closeWithoutSnapshot();
+
+        Path lastSegment = WriteAheadLog.segments(directory).get(WriteAheadLog.segments(directory).size() - 1);
+        Files.write(lastSegment, new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        Stores second = open(FsyncPolicy.NEVER);
+        assertEquals("Durable", second.products.findById(id).orElseThrow().getName());
+        second.persistence.destroy();
+    }
+
+    @Test
+    void firstStartKeepsSeedData() throws IOException {
+        Stores first = open(FsyncPolicy.INTERVAL);
+        first.persistence.destroy();
+
+        Stores second = open(FsyncPolicy.INTERVAL);
+        assertEquals(1, second.products.size());
+        assertEquals("Seed", second.products.findById(1L).orElseThrow().getName());
+        second.persistence.destroy();
+    }
+
+    @Test
+    void snapshotWaitsForWritesAlreadyInTheLog() throws Exception {
+        Stores first = open(FsyncPolicy.NEVER);
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Registered after the log listener, so it runs once the record is in the old segment
+        first.products.addListener(event -> {
+            if ("Slow".equals(event.value().getName())) {
+                logged.countDown();
+                awaitQuietly(release);
+            }
+        });
+        Thread writer = new Thread(() -> first.products.create(product("Slow", "1.00")));
+        writer.start();
+        logged.await();
+
+        Thread snapshot = new Thread(() -> {
+            try {
+                first.persistence.snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        snapshot.start();
+        snapshot.join(200);
+        assertTrue(snapshot.isAlive(), "Snapshot must wait for the write in progress");
+        release.countDown();
+        writer.join();
+        snapshot.join();
+        first.persistence.closeWithoutSnapshot();
+
+        Stores second = open(FsyncPolicy.NEVER);
+        assertEquals(List.of("Seed", "Slow"), second.products.findAll().stream().map(Product::getName).toList());
+        second.persistence.destroy();
+    }
+
+    private Stores open(FsyncPolicy fsync) throws IOException {
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        properties.setFsync(fsync);
+        properties.setFsyncInterval(Duration.ofMillis(5));
+        properties.setSnapshotInterval(Duration.ZERO);
+
+        ProductRepository products = new ProductRepository();
+        UserRepository users = new UserRepository();
+        products.create(product("Seed", "1.00"));
+        TestPersistence persistence = new TestPersistence(properties, products, users);
+        persistence.start();
+        return new Stores(products, users, persistence);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Product product(String name, String price) {
+        return new Product(null, name, name, new BigDecimal(price), "Test", 1);
+    }
+
+    private record Stores(ProductRepository products, UserRepository users, TestPersistence persistence) {}
+
+    /**
+     * Lets a test simulate a crash by closing the log without the shutdown snapshot.
+     */
+    private static final class TestPersistence extends StorePersistence {
+        TestPersistence(PersistenceProperties properties, ProductRepository products, UserRepository users) {
+            super(properties, new ObjectMapper(), products, users);
+        }
+
+        void closeWithoutSnapshot() throws IOException {
+            closeLog();
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Product store that keeps every field in a primitive column instead of one {@link Product}
+ * object per record: ids, versions and prices as {@code long[]} (prices in fixed-point cents),
+ * quantities as {@code int[]} and categories as {@code int[]} codes into a dictionary. Names and
+ * descriptions stay {@code String} references. A record costs a few dozen bytes plus its
+ * strings, against several hundred for a {@link ProductRepository} entry with its boxed id,
+ * {@code BigDecimal} price, map nodes and index postings.
+ *
+ * Filters scan the category and price columns in id order, and {@code Product} objects are
+ * only built for the rows a caller gets back. There are no secondary indexes, so a filter costs
+ * one pass over the rows after the cursor; the scan is sequential over primitive arrays, which
+ * keeps it cheap up to millions of rows.
+ *
+ * Rows are kept in id order. Records are changed in place, so a read-write lock keeps readers
+ * from seeing a row halfway through an update; a filter holds the read lock for its whole scan.
+ * Deleted rows are marked with version 0 and compacted away once they make up half of the rows.
+ *
+ * Prices must be whole cents: {@code 12.5} is stored and returned as {@code 12.50}, and
+ * {@code 12.505} is rejected.
+ *
+ * The application keeps its {@link Product} records and only adds the filter columns, in
+ * {@link ProductColumns}, when {@code sandbox.products.columnar-filters} is on. This store keeps
+ * the whole record in columns, so {@code ProductStoreBenchmark} can measure the heap that
+ * would save.
+ */
+public final class ColumnarProductStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final int NO_CATEGORY = -1;
+    private static final int ANY_CATEGORY = -2;
+    private static final long DELETED = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScanStats filterScans = new ScanStats();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private int rows;
+    private int deleted;
+    private long nextId = 1;
+    private volatile long version;
+
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private int[] categoryCounts = new int[INITIAL_CAPACITY];
+
+    public Optional<Product> findById(long id) {
+        lock.readLock().lock();
+        try {
+            int row = rowOf(id);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} products matching all non-null filters, in id order, skipping
+     * the first {@code offset} matches and starting after {@code afterId} when one is given.
+     * Same contract as {@link ProductRepository#find(String, BigDecimal, BigDecimal, Long)}
+     * followed by {@code skip} and {@code limit}.
+     */
+    public List<Product> find(String category, BigDecimal minPrice, BigDecimal maxPrice, Long afterId,
+                              long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int code = categoryFilter(category);
+            if (code == NO_CATEGORY || limit <= 0) {
+                return List.of();
+            }
+            boolean priced = minPrice != null || maxPrice != null;
+            long low = minPrice == null ? Long.MIN_VALUE : toBound(minPrice, RoundingMode.CEILING);
+            long high = maxPrice == null ? Long.MAX_VALUE : toBound(maxPrice, RoundingMode.FLOOR);
+
+            int start = afterId == null ? 0 : firstRowAfter(afterId);
+            int[] page = new int[Math.min(limit, 64)];
+            int found = 0;
+            long skipped = 0;
+            int row = start;
+            for (; row < rows && found < limit; row++) {
+                if (code != ANY_CATEGORY && categories[row] != code) {
+                    continue;
+                }
+                long price = cents[row];
+                if (priced && (price == NO_PRICE || price < low || price > high)) {
+                    continue;
+                }
+                if (versions[row] == DELETED) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                if (found == page.length) {
+                    page = Arrays.copyOf(page, Math.min(limit, page.length * 2));
+                }
+                page[found++] = row;
+            }
+            filterScans.query();
+            filterScans.scanned(row - start);
+
+            List<Product> products = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                products.add(materialize(page[i]));
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns how many products match all non-null filters.
+     */
+    public long count(String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        lock.readLock().lock();
+        try {
+            int code = categoryFilter(category);
+            if (code == NO_CATEGORY) {
+                return 0;
+            }
+            boolean priced = minPrice != null || maxPrice != null;
+            long low = minPrice == null ? Long.MIN_VALUE : toBound(minPrice, RoundingMode.CEILING);
+            long high = maxPrice == null ? Long.MAX_VALUE : toBound(maxPrice, RoundingMode.FLOOR);
+
+            long matches = 0;
+            for (int row = 0; row < rows; row++) {
+                long price = cents[row];
+                if ((code == ANY_CATEGORY || categories[row] == code)
+                        && (!priced || (price != NO_PRICE && price >= low && price <= high))
+                        && versions[row] != DELETED) {
+                    matches++;
+                }
+            }
+            filterScans.query();
+            filterScans.scanned(rows);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distinct categories currently in use, in alphabetical order.
+     */
+    public List<String> findCategories() {
+        lock.readLock().lock();
+        try {
+            List<String> inUse = new ArrayList<>();
+            for (int code = 0; code < categoryNames.size(); code++) {
+                if (categoryCounts[code] > 0) {
+                    inUse.add(categoryNames.get(code));
+                }
+            }
+            Collections.sort(inUse);
+            return inUse;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Product create(Product product) {
+        lock.writeLock().lock();
+        try {
+            product.setId(nextId);
+            product.setVersion(0);
+            return insert(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a product under the id it already carries, replacing any product with that id,
+     * with the same versioning as {@link ProductRepository#insert(Product)}. Ids above every
+     * stored one are appended; a lower id has to shift the rows after it, which is meant for
+     * restores rather than regular writes.
+     *
+     * @throws IllegalArgumentException if the price is not a whole number of cents
+     */
+    public Product insert(Product product) {
+        long id = product.getId();
+        long price = toCents(product.getPrice());
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(id);
+            if (row >= 0) {
+                product.setVersion(versions[row] + 1);
+                release(categories[row]);
+            } else {
+                product.setVersion(Math.max(product.getVersion(), 1));
+                row = insertionPoint(id);
+            }
+            write(row, product, price);
+            nextId = Math.max(nextId, id + 1);
+            version++;
+            return product;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies {@code change} to a copy of the stored product and writes the result back, as
+     * {@link ProductRepository#update(Long, Long, UnaryOperator)} does.
+     *
+     * @throws VersionConflictException if the stored version is not {@code expectedVersion}
+     */
+    public Optional<Product> update(long id, Long expectedVersion, UnaryOperator<Product> change) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(id);
+            if (row < 0) {
+                return Optional.empty();
+            }
+            if (expectedVersion != null && expectedVersion != versions[row]) {
+                throw new VersionConflictException(id, versions[row]);
+            }
+            Product updated = change.apply(materialize(row));
+            long price = toCents(updated.getPrice());
+            updated.setId(id);
+            updated.setVersion(versions[row] + 1);
+            release(categories[row]);
+            write(row, updated, price);
+            version++;
+            return Optional.of(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean deleteById(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(id);
+            if (row < 0) {
+                return false;
+            }
+            release(categories[row]);
+            versions[row] = DELETED;
+            names[row] = null;
+            descriptions[row] = null;
+            deleted++;
+            if (deleted > rows / 2) {
+                compact();
+            }
+            version++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the store version, which every write bumps.
+     */
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows - deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queries and rows examined by {@link #find} and {@link #count}.
+     */
+    public ScanStats filterScans() {
+        return filterScans;
+    }
+
+    private Product materialize(int row) {
+        long price = cents[row];
+        int category = categories[row];
+        Product product = new Product(ids[row], names[row], descriptions[row],
+                price == NO_PRICE ? null : BigDecimal.valueOf(price, 2),
+                category == NO_CATEGORY ? null : categoryNames.get(category),
+                quantities[row]);
+        product.setVersion(versions[row]);
+        return product;
+    }
+
+    private void write(int row, Product product, long price) {
+        versions[row] = product.getVersion();
+        cents[row] = price;
+        quantities[row] = product.getQuantity();
+        categories[row] = encode(product.getCategory());
+        names[row] = product.getName();
+        descriptions[row] = product.getDescription();
+    }
+
+    /**
+     * Returns the row of the live record with {@code id}, or -1.
+     */
+    private int rowOf(long id) {
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        return row >= 0 && versions[row] != DELETED ? row : -1;
+    }
+
+    private int firstRowAfter(long id) {
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        return row >= 0 ? row + 1 : -row - 1;
+    }
+
+    /**
+     * Makes room for {@code id} at its place in id order and returns that row. A deleted row
+     * with the same id is reused.
+     */
+    private int insertionPoint(long id) {
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        if (row >= 0) {
+            deleted--;
+            return row;
+        }
+        row = -row - 1;
+        if (rows == ids.length) {
+            grow();
+        }
+        if (row < rows) {
+            int tail = rows - row;
+            System.arraycopy(ids, row, ids, row + 1, tail);
+            System.arraycopy(versions, row, versions, row + 1, tail);
+            System.arraycopy(cents, row, cents, row + 1, tail);
+            System.arraycopy(quantities, row, quantities, row + 1, tail);
+            System.arraycopy(categories, row, categories, row + 1, tail);
+            System.arraycopy(names, row, names, row + 1, tail);
+            System.arraycopy(descriptions, row, descriptions, row + 1, tail);
+        }
+        ids[row] = id;
+        rows++;
+        return row;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (versions[row] != DELETED) {
+                ids[live] = ids[row];
+                versions[live] = versions[row];
+                cents[live] = cents[row];
+                quantities[live] = quantities[row];
+                categories[live] = categories[row];
+                names[live] = names[row];
+                descriptions[live] = descriptions[row];
+                live++;
+            }
+        }
+        Arrays.fill(names, live, rows, null);
+        Arrays.fill(descriptions, live, rows, null);
+        rows = live;
+        deleted = 0;
+    }
+
+    /**
+     * Returns the code for {@code category}, adding it to the dictionary and counting one more
+     * row that uses it. Codes are never reused, so the dictionary only grows by distinct names.
+     */
+    private int encode(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        int code = categoryCodes.computeIfAbsent(category, name -> {
+            categoryNames.add(name);
+            return categoryNames.size() - 1;
+        });
+        if (code == categoryCounts.length) {
+            categoryCounts = Arrays.copyOf(categoryCounts, code * 2);
+        }
+        categoryCounts[code]++;
+        return code;
+    }
+
+    private void release(int code) {
+        if (code != NO_CATEGORY) {
+            categoryCounts[code]--;
+        }
+    }
+
+    /**
+     * Returns {@link #ANY_CATEGORY} for no filter, the category's code, or
+     * {@link #NO_CATEGORY} when no stored product has ever used it.
+     */
+    private int categoryFilter(String category) {
+        if (category == null) {
+            return ANY_CATEGORY;
+        }
+        return categoryCodes.getOrDefault(category, NO_CATEGORY);
+    }
+
+    private static long toCents(BigDecimal price) {
+        if (price == null) {
+            return NO_PRICE;
+        }
+        try {
+            long cents = price.movePointRight(2).longValueExact();
+            if (cents == NO_PRICE) {
+                throw new ArithmeticException("reserved");
+            }
+            return cents;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price must be a whole number of cents: " + price, e);
+        }
+    }
+
+    /**
+     * Converts a filter bound to cents, rounding towards the inside of the range and clamping
+     * bounds outside what the column can hold.
+     */
+    private static long toBound(BigDecimal price, RoundingMode rounding) {
+        BigDecimal bound = price.movePointRight(2).setScale(0, rounding);
+        if (bound.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (bound.compareTo(BigDecimal.valueOf(Long.MIN_VALUE + 1)) < 0) {
+            return Long.MIN_VALUE + 1;
+        }
+        return bound.longValueExact();
+    }
+}
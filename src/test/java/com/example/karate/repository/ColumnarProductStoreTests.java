@@ -0,0 +1,145 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ColumnarProductStore}, checked against {@link ProductRepository} where the
+ * two share a contract.
+ */
+class ColumnarProductStoreTests {
+
+    private static final List<String> CATEGORIES = Arrays.asList("Books", "Electronics", "Home", "Toys", null);
+
+    private final ColumnarProductStore store = new ColumnarProductStore();
+
+    @Test
+    void filtersAndPagesLikeProductRepository() {
+        ProductRepository repository = new ProductRepository();
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            String category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+            BigDecimal price = random.nextInt(20) == 0 ? null : BigDecimal.valueOf(random.nextInt(100_000), 2);
+            repository.create(new Product(null, "Product " + i, null, price, category, i));
+            store.create(new Product(null, "Product " + i, null, price, category, i));
+        }
+        for (int i = 1; i <= 2_000; i += 7) {
+            repository.deleteById((long) i);
+            store.deleteById(i);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String category = random.nextBoolean() ? CATEGORIES.get(random.nextInt(CATEGORIES.size())) : "Garden";
+            BigDecimal min = random.nextBoolean() ? null : BigDecimal.valueOf(random.nextInt(60_000), 3);
+            BigDecimal max = random.nextBoolean() ? null : BigDecimal.valueOf(random.nextInt(1_000_000), 3);
+            Long afterId = random.nextBoolean() ? null : (long) random.nextInt(2_000);
+            int offset = random.nextInt(3) * 10;
+
+            List<Product> expected = repository.find(category, min, max, afterId).skip(offset).limit(10).toList();
+            List<Product> actual = store.find(category, min, max, afterId, offset, 10);
+
+            String query = category + " " + min + ".." + max + " after " + afterId + " offset " + offset;
+            assertEquals(ids(expected), ids(actual), query);
+            assertEquals(repository.find(category, min, max).count(), store.count(category, min, max), query);
+        }
+        assertEquals(repository.size(), store.size());
+        assertEquals(repository.findCategories(), store.findCategories());
+    }
+
+    @Test
+    void materializesEveryField() {
+        Product created = store.create(new Product(null, "Laptop", "High-performance laptop", new BigDecimal("999.9"), "Electronics", 10));
+
+        Product stored = store.findById(created.getId()).orElseThrow();
+        assertEquals("Laptop", stored.getName());
+        assertEquals("High-performance laptop", stored.getDescription());
+        assertEquals(new BigDecimal("999.90"), stored.getPrice());
+        assertEquals("Electronics", stored.getCategory());
+        assertEquals(10, stored.getQuantity());
+        assertEquals(1, stored.getVersion());
+        assertNotSame(stored, store.findById(created.getId()).orElseThrow());
+    }
+
+    @Test
+    void updatesInPlaceAndChecksVersions() {
+        long id = store.create(new Product(null, "Mug", null, new BigDecimal("12.99"), "Home", 100)).getId();
+
+        Product updated = store.update(id, 1L, product -> {
+            product.setCategory("Kitchen");
+            product.setQuantity(99);
+            return product;
+        }).orElseThrow();
+
+        assertEquals(2, updated.getVersion());
+        assertEquals(List.of("Kitchen"), store.findCategories());
+        assertEquals(99, store.findById(id).orElseThrow().getQuantity());
+        assertThrows(VersionConflictException.class, () -> store.update(id, 1L, product -> product));
+        assertTrue(store.update(404, null, product -> product).isEmpty());
+    }
+
+    @Test
+    void insertKeepsIdOrderAndReplacesExistingIds() {
+        store.insert(new Product(5L, "Five", null, null, null, 0));
+        store.insert(new Product(2L, "Two", null, null, null, 0));
+        store.insert(new Product(9L, "Nine", null, null, null, 0));
+        Product replaced = store.insert(new Product(5L, "Five again", null, null, null, 0));
+
+        assertEquals(2, replaced.getVersion());
+        assertEquals(List.of(2L, 5L, 9L), ids(store.find(null, null, null, null, 0, 10)));
+        assertEquals(List.of(9L), ids(store.find(null, null, null, 5L, 0, 10)));
+        assertEquals(10, store.create(new Product(null, "Ten", null, null, null, 0)).getId());
+    }
+
+    @Test
+    void compactsOnceHalfTheRowsAreDeleted() {
+        for (int i = 0; i < 100; i++) {
+            store.create(new Product(null, "Product " + i, null, BigDecimal.ONE, "Books", i));
+        }
+        for (long id = 1; id <= 60; id++) {
+            assertTrue(store.deleteById(id));
+        }
+        assertFalse(store.deleteById(1));
+
+        assertEquals(40, store.size());
+        assertEquals(61, store.find(null, null, null, null, 0, 1).get(0).getId());
+        assertEquals(40, store.count("Books", BigDecimal.ONE, BigDecimal.ONE));
+
+        for (long id = 61; id <= 100; id++) {
+            store.deleteById(id);
+        }
+        assertEquals(List.of(), store.findCategories());
+        assertEquals(List.of(), store.find(null, null, null, null, 0, 10));
+    }
+
+    @Test
+    void rejectsPricesFinerThanCents() {
+        assertThrows(IllegalArgumentException.class,
+                () -> store.create(new Product(null, "Odd", null, new BigDecimal("1.005"), null, 0)));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void countsRowsExaminedByFilters() {
+        for (int i = 0; i < 100; i++) {
+            store.create(new Product(null, "Product " + i, null, BigDecimal.valueOf(i), i % 2 == 0 ? "Even" : "Odd", i));
+        }
+
+        assertEquals(5, store.find("Odd", null, null, null, 0, 5).size());
+        assertEquals(50, store.count("Even", null, null));
+
+        assertEquals(2, store.filterScans().queries());
+        // The page ends at id 10, the fifth odd product; the count reads every row
+        assertEquals(10 + 100, store.filterScans().scanned());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
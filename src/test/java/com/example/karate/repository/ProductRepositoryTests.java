@@ -0,0 +1,349 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.Product;
+import com.example.karate.model.ProductStats;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ProductRepository}: multi-threaded stress tests and index maintenance.
+ * Stress workers are released together from a latch to maximise contention.
+ */
+class ProductRepositoryTests {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    private final ProductRepository repository = new ProductRepository();
+
+    @Test
+    void concurrentCreatesAllocateUniqueIds() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                ids.add(repository.create(newProduct("Stress", 1)).getId());
+            }
+        });
+
+        int expected = THREADS * OPERATIONS_PER_THREAD;
+        assertEquals(expected, ids.size(), "Duplicate ids were handed out");
+        assertEquals(expected, repository.size());
+        assertEquals(expected, repository.findAll().size());
+    }
+
+    @Test
+    void concurrentUpdatesToSameProductAreNotLost() throws Exception {
+        Long id = repository.create(newProduct("Counter", 0)).getId();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                repository.update(id, product -> {
+                    product.setQuantity(product.getQuantity() + 1);
+                    return product;
+                });
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, repository.findById(id).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void readersNeverFailWhileWritersCreateAndDelete() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> reads = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            reads.add(readers.submit(() -> {
+                while (writing.get()) {
+                    repository.findAll().stream()
+                            .filter(product -> product.getQuantity() >= 0)
+                            .count();
+                }
+                return null;
+            }));
+        }
+
+        try {
+            runConcurrently(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Product created = repository.create(newProduct("Transient", i));
+                    assertTrue(repository.findById(created.getId()).isPresent());
+                    assertTrue(repository.deleteById(created.getId()));
+                }
+            });
+        } finally {
+            writing.set(false);
+            readers.shutdown();
+        }
+
+        for (Future<?> read : reads) {
+            read.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(0, repository.size());
+        assertTrue(repository.findAll().isEmpty());
+    }
+
+    @Test
+    void filtersFollowIndexesThroughUpdatesAndDeletes() {
+        Long laptop = repository.create(product("Laptop", "999.99", "Electronics")).getId();
+        Long phone = repository.create(product("Phone", "699.99", "Electronics")).getId();
+        Long mug = repository.create(product("Mug", "12.99", "Home")).getId();
+
+        assertEquals(List.of(laptop, phone), ids(repository.find("Electronics", null, null)));
+        assertEquals(List.of(phone, mug), ids(repository.find(null, null, new BigDecimal("700"))));
+        assertEquals(List.of(phone), ids(repository.find("Electronics", new BigDecimal("100"), new BigDecimal("700.00"))));
+        assertEquals(List.of(), ids(repository.find(null, new BigDecimal("10"), new BigDecimal("5"))));
+
+        repository.update(phone, product -> {
+            product.setCategory("Home");
+            product.setPrice(new BigDecimal("5.00"));
+            return product;
+        });
+        assertEquals(List.of(laptop), ids(repository.find("Electronics", null, null)));
+        assertEquals(List.of(phone, mug), ids(repository.find("Home", null, new BigDecimal("20"))));
+
+        repository.deleteById(laptop);
+        assertEquals(List.of(), ids(repository.find("Electronics", null, null)));
+        assertEquals(List.of("Home"), repository.findCategories());
+    }
+
+    @Test
+    void columnarFiltersAnswerLikeTheIndexes() {
+        ProductRepository columnar = new ProductRepository(true);
+        Random random = new Random(42);
+        List<Long> live = new ArrayList<>();
+        List<Product> removed = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            int action = random.nextInt(10);
+            if (action < 5 || live.isEmpty()) {
+                Product product = randomProduct(random, i);
+                repository.create(new Product(product));
+                live.add(columnar.create(product).getId());
+            } else if (action < 7) {
+                Long id = live.get(random.nextInt(live.size()));
+                Product changes = randomProduct(random, i);
+                UnaryOperator<Product> change = product -> {
+                    product.setCategory(changes.getCategory());
+                    product.setPrice(changes.getPrice());
+                    return product;
+                };
+                repository.update(id, change);
+                columnar.update(id, change);
+            } else {
+                Long id = live.remove(random.nextInt(live.size()));
+                removed.add(repository.findById(id).orElseThrow());
+                repository.deleteById(id);
+                columnar.deleteById(id);
+            }
+        }
+        // Restored below the highest id, as a log replay may
+        for (Product product : removed.subList(0, 20)) {
+            repository.insert(new Product(product));
+            columnar.insert(new Product(product));
+        }
+
+        Long middle = repository.findAll().stream().skip(repository.size() / 2).findFirst().orElseThrow().getId();
+        List<BigDecimal> bounds = Arrays.asList(null, new BigDecimal("1.005"), new BigDecimal("10"), new BigDecimal("50.5"));
+        for (String category : Arrays.asList(null, "Category-0", "Category-3", "Missing")) {
+            for (BigDecimal min : bounds) {
+                for (BigDecimal max : bounds) {
+                    for (Long afterId : Arrays.asList(null, middle)) {
+                        assertEquals(ids(repository.find(category, min, max, afterId)),
+                                ids(columnar.find(category, min, max, afterId)),
+                                category + " " + min + ".." + max + " after " + afterId);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void columnarFiltersStayOrderedWhileWritersRun() throws Exception {
+        ProductRepository columnar = new ProductRepository(true);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> reads = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            reads.add(readers.submit(() -> {
+                while (writing.get()) {
+                    List<Long> found = ids(columnar.find("Test", new BigDecimal("5"), new BigDecimal("10"), null));
+                    for (int i = 1; i < found.size(); i++) {
+                        assertTrue(found.get(i - 1) < found.get(i), "Scan returned ids out of order: " + found);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            runConcurrently(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Product created = columnar.create(newProduct("Transient", i));
+                    if (i % 4 != 0) {
+                        assertTrue(columnar.deleteById(created.getId()));
+                    }
+                }
+            });
+        } finally {
+            writing.set(false);
+            readers.shutdown();
+        }
+
+        for (Future<?> read : reads) {
+            read.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(columnar.size(), columnar.find("Test", new BigDecimal("5"), new BigDecimal("10"), null).count());
+    }
+
+    private static List<Long> ids(Stream<Product> products) {
+        return products.map(Product::getId).toList();
+    }
+
+    @Test
+    void everyWriteBumpsRecordAndCollectionVersions() {
+        long initial = repository.version();
+        Product created = repository.create(product("Desk", "150.00", "Office"));
+        assertEquals(1, created.getVersion());
+        assertEquals(initial + 1, repository.version());
+
+        repository.update(created.getId(), product -> {
+            product.setQuantity(2);
+            return product;
+        });
+        assertEquals(2, repository.findById(created.getId()).orElseThrow().getVersion());
+
+        repository.deleteById(created.getId());
+        assertEquals(initial + 3, repository.version());
+
+        // A failed write changes nothing
+        repository.deleteById(created.getId());
+        assertEquals(initial + 3, repository.version());
+    }
+
+    @Test
+    void updatesSwapInCopiesAndCheckExpectedVersion() {
+        Product original = repository.create(product("Chair", "80.00", "Office"));
+
+        Product updated = repository.update(original.getId(), 1L, product -> {
+            product.setPrice(new BigDecimal("90.00"));
+            return product;
+        }).orElseThrow();
+
+        assertNotSame(original, updated);
+        assertEquals(new BigDecimal("80.00"), original.getPrice(), "Readers holding the old record must not see the change");
+        assertEquals(2, updated.getVersion());
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> repository.update(original.getId(), 1L, product -> product));
+        assertEquals(2, conflict.getCurrentVersion());
+        assertSame(updated, repository.findById(original.getId()).orElseThrow());
+    }
+
+    @Test
+    void statsFollowEveryWriteWithoutRescanning() {
+        Long laptop = repository.create(new Product(null, "Laptop", null, new BigDecimal("999.99"), "Electronics", 10)).getId();
+        Long phone = repository.create(new Product(null, "Phone", null, new BigDecimal("699.99"), "Electronics", 25)).getId();
+        repository.create(new Product(null, "Mug", null, new BigDecimal("12.99"), "Home", 100));
+        repository.create(new Product(null, "Gift card", null, null, null, 5));
+
+        assertEquals(new ProductStats(4, 140, new BigDecimal("12.99"), new BigDecimal("999.99"),
+                new BigDecimal("570.99"), new BigDecimal("28798.65")), repository.stats());
+        assertEquals(new ProductStats(2, 35, new BigDecimal("699.99"), new BigDecimal("999.99"),
+                new BigDecimal("849.99"), new BigDecimal("27499.65")), repository.statsByCategory().get("Electronics"));
+
+        repository.update(phone, product -> {
+            product.setCategory("Home");
+            product.setQuantity(1);
+            return product;
+        });
+        repository.deleteById(laptop);
+
+        assertEquals(List.of("Home"), List.copyOf(repository.statsByCategory().keySet()));
+        assertEquals(new ProductStats(2, 101, new BigDecimal("12.99"), new BigDecimal("699.99"),
+                new BigDecimal("356.49"), new BigDecimal("1998.99")), repository.statsByCategory().get("Home"));
+        assertEquals(3, repository.stats().count());
+    }
+
+    @Test
+    void recomputeMatchesRunningStatsAfterConcurrentWrites() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                Product created = repository.create(product("Stress " + i, "1." + i % 100, "Category-" + i % 7));
+                if (i % 3 == 0) {
+                    repository.update(created.getId(), product -> {
+                        product.setQuantity(product.getQuantity() + 2);
+                        return product;
+                    });
+                } else if (i % 3 == 1) {
+                    repository.deleteById(created.getId());
+                }
+            }
+        });
+        ProductStats running = repository.stats();
+        Map<String, ProductStats> runningByCategory = repository.statsByCategory();
+
+        assertFalse(repository.recomputeStats(new ForkJoinPool(4)), "Running stats drifted from the products");
+        assertEquals(running, repository.stats());
+        assertEquals(runningByCategory, repository.statsByCategory());
+        assertEquals(repository.size(), running.count());
+    }
+
+    private static Product product(String name, String price, String category) {
+        return new Product(null, name, name, new BigDecimal(price), category, 1);
+    }
+
+    private static Product randomProduct(Random random, int i) {
+        int category = random.nextInt(6);
+        int price = random.nextInt(10);
+        // Some prices have fractions of a cent or none at all, which the columns cannot hold as cents
+        BigDecimal amount = price == 0 ? null
+                : price == 1 ? BigDecimal.valueOf(random.nextInt(10_000), 3)
+                : BigDecimal.valueOf(random.nextInt(10_000), 2);
+        return new Product(null, "Product " + i, null, amount, category == 5 ? null : "Category-" + category, 1);
+    }
+
+    private static Product newProduct(String name, int quantity) {
+        return new Product(null, name, "Stress test product", new BigDecimal("9.99"), "Test", quantity);
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
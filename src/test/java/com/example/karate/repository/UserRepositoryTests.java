@@ -0,0 +1,88 @@
+package com.example.karate.repository;
+
+import com.example.karate.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the trigram search index of {@link UserRepository}.
+ */
+class UserRepositoryTests {
+
+    private final UserRepository repository = new UserRepository();
+
+    @Test
+    void searchMatchesNameOrEmailIgnoringCase() {
+        Long john = repository.create(new User(null, "John Doe", "john.doe@example.com", "admin", true)).getId();
+        Long jane = repository.create(new User(null, "Jane Smith", "jane.smith@example.com", "user", true)).getId();
+        Long bob = repository.create(new User(null, "Bob Johnson", "bob@corp.test", "user", false)).getId();
+
+        assertEquals(List.of(john, bob), ids(repository.search("JOHN")));
+        assertEquals(List.of(jane), ids(repository.search("h@ex")));
+        assertEquals(List.of(john, jane), ids(repository.search("example.com")));
+        assertEquals(List.of(), ids(repository.search("nobody")));
+    }
+
+    @Test
+    void shortQueriesFallBackToScanningLowerCasedFields() {
+        Long john = repository.create(new User(null, "John Doe", "jd@example.com", "admin", true)).getId();
+        repository.create(new User(null, "Jane Smith", "js@example.com", "user", true));
+
+        assertEquals(List.of(john), ids(repository.search("Oh")));
+        assertEquals(2, repository.search("").count());
+    }
+
+    @Test
+    void indexFollowsUpdatesAndDeletes() {
+        Long id = repository.create(new User(null, "Alice Liddell", "alice@example.com", "user", true)).getId();
+
+        repository.update(id, user -> {
+            user.setName("Alicia Keys");
+            return user;
+        });
+        assertEquals(List.of(), ids(repository.search("liddell")));
+        assertEquals(List.of(id), ids(repository.search("keys")));
+        assertEquals(List.of(id), ids(repository.search("alice@")));
+
+        repository.deleteById(id);
+        assertEquals(List.of(), ids(repository.search("keys")));
+    }
+
+    @Test
+    void searchIsLazyForPaging() {
+        for (int i = 0; i < 50; i++) {
+            repository.create(new User(null, "Tester " + i, "tester" + i + "@example.com", "user", true));
+        }
+
+        List<User> page = repository.search("tester").skip(10).limit(5).toList();
+
+        assertEquals(5, page.size());
+        assertEquals("Tester 10", page.get(0).getName());
+    }
+
+    @Test
+    void scanStatsCountOnlyCandidatesThatWereExamined() {
+        for (int i = 0; i < 50; i++) {
+            repository.create(new User(null, "Tester " + i, "tester" + i + "@example.com", i % 2 == 0 ? "admin" : "user", true));
+        }
+
+        assertEquals(5, repository.search("tester").limit(5).count());
+        // Trigrams narrow "Tester 4" down to Tester 4 and Tester 40-49
+        assertEquals(11, repository.search("Tester 4").count());
+        assertEquals(0, repository.search("zzz").count());
+        assertEquals(3, repository.searchScans().queries());
+        assertEquals(16, repository.searchScans().scanned());
+
+        assertEquals(10, repository.find("admin", null, null).limit(10).count());
+        assertEquals(1, repository.filterScans().queries());
+        assertEquals(19, repository.filterScans().scanned());
+    }
+
+    private static List<Long> ids(Stream<User> users) {
+        return users.map(User::getId).toList();
+    }
+}
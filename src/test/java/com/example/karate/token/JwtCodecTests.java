@@ -0,0 +1,102 @@
+package com.example.karate.token;
+
+import com.example.karate.token.JwtCodec.Status;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link JwtCodec}, including tokens in the shapes the Karate suites send.
+ */
+class JwtCodecTests {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final byte[] SECRET = "test-secret".getBytes(StandardCharsets.UTF_8);
+
+    private final JwtCodec codec = codecAt(NOW);
+
+    @Test
+    void issuedTokensVerifyUntilTheyExpire() {
+        String token = codec.issue();
+
+        assertEquals(Status.VALID, codec.verify(token));
+        assertEquals("{\"typ\":\"JWT\",\"alg\":\"HS256\"}", codec.decodeSegment(token, 0));
+        long iat = NOW.getEpochSecond();
+        assertTrue(codec.decodeSegment(token, 1).matches(
+                "\\{\"sub\":\"karate-test\",\"iat\":" + iat + ",\"exp\":" + (iat + 3600) + ",\"jti\":\\d+}"));
+        assertEquals(iat + 3600, codec.expiresAt(token));
+        assertNotEquals(token, codec.issue(), "Tokens issued in the same second must differ");
+
+        assertEquals(Status.VALID, codecAt(NOW.plusSeconds(3600)).verify(token));
+        assertEquals(Status.EXPIRED, codecAt(NOW.plusSeconds(3601)).verify(token));
+    }
+
+    @Test
+    void matchesTheJdkEncoderAndHmac() throws Exception {
+        String token = codec.issue();
+        String[] parts = token.split("\\.");
+
+        Mac mac = Mac.getInstance(JwtCodec.ALGORITHM);
+        mac.init(new SecretKeySpec(SECRET, JwtCodec.ALGORITHM));
+        byte[] expected = mac.doFinal((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(expected), parts[2]);
+        assertEquals(codec.decodeSegment(token, 1),
+                new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void rejectsTamperedAndForeignTokens() {
+        String token = codec.issue();
+        String otherKey = new JwtCodec("other".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1),
+                Clock.fixed(NOW, ZoneOffset.UTC)).issue();
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "dGVzdC1zaWduYXR1cmU";
+
+        assertEquals(Status.INVALID_SIGNATURE, codec.verify(otherKey));
+        assertEquals(Status.INVALID_SIGNATURE, codec.verify(forged));
+        assertEquals(Status.INVALID_SIGNATURE, codec.verify(token + "A"));
+    }
+
+    @Test
+    void reportsTheFirstFailedCheck() {
+        String header = "eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9";
+        String signature = "dGVzdC1zaWduYXR1cmU";
+
+        assertEquals(Status.INVALID_TOKEN, codec.verify("only.two"));
+        assertEquals(Status.INVALID_TOKEN, codec.verify("a.b.c.d"));
+        assertEquals(Status.INVALID_HEADER, codec.verify("invalid.jwt.token"));
+        assertEquals(Status.INVALID_HEADER, codec.verify("!!!!.e30.e30"));
+        assertEquals(Status.INVALID_PAYLOAD, codec.verify(header + ".eyJzdWIiOiJrYXJhdGUtdGVzdCJ9." + signature));
+        // Expired tokens are reported as such even though their signature is fake
+        assertEquals(Status.EXPIRED, codec.verify(header
+                + ".eyJzdWIiOiJrYXJhdGUtdGVzdCIsImlhdCI6MTYzMzQ1Njc4OSwiZXhwIjoxNjMzNDU2Nzg5fQ." + signature));
+    }
+
+    @Test
+    void decodesBothAlphabetsWithOrWithoutPadding() {
+        byte[] bytes = {(byte) 0xfb, (byte) 0xff, 0x01, 0x7f};
+        String standard = Base64.getEncoder().encodeToString(bytes);
+        String url = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        byte[] decoded = new byte[8];
+
+        assertEquals(4, JwtCodec.decode(standard, 0, standard.length(), decoded));
+        assertArrayEquals(bytes, Arrays.copyOf(decoded, 4));
+        assertEquals(4, JwtCodec.decode(url, 0, url.length(), decoded));
+        assertArrayEquals(bytes, Arrays.copyOf(decoded, 4));
+        assertEquals(-1, JwtCodec.decode("abcde", 0, 5, decoded));
+    }
+
+    private static JwtCodec codecAt(Instant now) {
+        return new JwtCodec(SECRET, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.karate.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TokenCache} and {@link RevocationList}.
+ */
+class TokenCacheTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final JwtCodec codec = new JwtCodec("test-secret".getBytes(StandardCharsets.UTF_8), Duration.ofMinutes(1), clock);
+
+    @Test
+    void repeatedLookupsHitUntilTheTokenExpires() {
+        TokenCache cache = new TokenCache(10, clock);
+        String token = codec.issue();
+        Map<String, Object> response = Map.of("valid", true);
+
+        assertNull(cache.get(token));
+        cache.put(token, codec.expiresAt(token), response);
+        assertSame(response, cache.get(token));
+        assertSame(response, cache.get(token));
+        assertEquals(new TokenCache.Stats(2, 1, 1), cache.stats());
+
+        clock.advance(Duration.ofSeconds(61));
+        assertNull(cache.get(token));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void staysWithinItsBoundAndSweepsExpiredEntriesFirst() {
+        TokenCache cache = new TokenCache(2, clock);
+        String first = codec.issue();
+        cache.put(first, codec.expiresAt(first), Map.of());
+        cache.put(codec.issue(), codec.expiresAt(first) + 3600, Map.of());
+
+        clock.advance(Duration.ofSeconds(61));
+        String fresh = codec.issue();
+        cache.put(fresh, codec.expiresAt(fresh), Map.of());
+
+        assertEquals(2, cache.stats().size());
+        assertNotNull(cache.get(fresh));
+    }
+
+    @Test
+    void revokedTokensAreForgottenOnceExpired() {
+        RevocationList revocations = new RevocationList(clock);
+        String revoked = codec.issue();
+        String other = codec.issue();
+
+        revocations.revoke(revoked, codec.expiresAt(revoked));
+        assertTrue(revocations.isRevoked(revoked));
+        assertFalse(revocations.isRevoked(other));
+
+        clock.advance(Duration.ofSeconds(61));
+        revocations.revoke(other, codec.expiresAt(other) + 3600);
+        assertFalse(revocations.isRevoked(revoked));
+        assertEquals(1, revocations.size());
+    }
+
+    @Test
+    void revocationCoversEveryEncodingOfTheSignature() {
+        RevocationList revocations = new RevocationList(clock);
+        String token = codec.issue();
+        while (token.substring(token.lastIndexOf('.')).matches("[^_-]*")) {
+            token = codec.issue(); // Want a signature whose alphabet substitution changes it
+        }
+        revocations.revoke(token, codec.expiresAt(token));
+
+        int dot = token.lastIndexOf('.') + 1;
+        String signature = token.substring(dot);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        char last = signature.charAt(signature.length() - 1);
+        List<String> variants = List.of(
+                token + "=",
+                token.substring(0, dot) + signature.replace('-', '+').replace('_', '/'),
+                token.substring(0, dot) + Base64.getEncoder().encodeToString(Base64.getUrlDecoder().decode(signature)),
+                // The last of 43 characters carries two unused bits
+                token.substring(0, token.length() - 1) + alphabet.charAt(alphabet.indexOf(last) ^ 1));
+        for (String variant : variants) {
+            assertNotEquals(token, variant);
+            assertEquals(JwtCodec.Status.VALID, codec.verify(variant), variant);
+            assertTrue(revocations.isRevoked(variant), variant);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
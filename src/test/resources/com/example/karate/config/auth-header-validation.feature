@@ -105,6 +105,61 @@ Scenario: Validate authentication header with expired JWT token
   And match response.error == 'JWT token has expired'
   * print 'Expired JWT validation successful'
 
+@auth @validation @error-handling
+Scenario: Validate authentication header with a forged signature
+  # Take a genuine token and replace its signature
+  * def authHeader = getAuthHeaders()
+  * def token = authHeader['iam-claimsetjwt']
+  * def forgedJwt = token.substring(0, token.lastIndexOf('.') + 1) + 'dGVzdC1zaWduYXR1cmU'
+  * configure headers = karate.merge(defaultHeaders, { 'iam-claimsetjwt': forgedJwt })
+  Given path '/api/token/validate-auth-header'
+  When method POST
+  Then status 401
+  And match response.valid == false
+  And match response.status == 'INVALID_SIGNATURE'
+  And match response.error == 'Invalid JWT signature'
+  * print 'Forged signature validation successful'
+
+@auth @validation @revocation
+Scenario: Repeated validations are cached and revoked tokens are rejected
+  # Use a token of our own so revoking it cannot affect other scenarios
+  Given path '/api/token/generate'
+  And request tokenConfig
+  When method POST
+  Then status 200
+  * def token = response['iam-claimsetjwt']
+  * configure headers = karate.merge(defaultHeaders, { 'iam-claimsetjwt': token })
+
+  Given path '/api/token/validate-auth-header'
+  When method POST
+  Then status 200
+
+  Given path '/api/token/cache-stats'
+  When method GET
+  Then status 200
+  * def hitsBefore = response.hits
+
+  Given path '/api/token/validate-auth-header'
+  When method POST
+  Then status 200
+  And match response.valid == true
+
+  Given path '/api/token/cache-stats'
+  When method GET
+  Then status 200
+  And assert response.hits > hitsBefore
+
+  Given path '/api/token/revoke'
+  When method POST
+  Then status 200
+  And match response == { revoked: true, status: 'REVOKED' }
+
+  Given path '/api/token/validate-auth-header'
+  When method POST
+  Then status 401
+  And match response.status == 'REVOKED'
+  And match response.error == 'JWT token has been revoked'
+
 @auth @validation @integration
 Scenario: End-to-end authentication header validation workflow
   * def authHeader = getAuthHeaders()
@@ -6,7 +6,7 @@ Background:
   * def authHeader = getAuthHeaders()
   * configure headers = karate.merge(defaultHeaders, authHeader)
 
-@smoke @products @get
+@smoke @products @get @load
 Scenario: GET - Retrieve all products with filtering
   Given param category = 'Electronics'
   And param minPrice = 100
@@ -22,7 +22,8 @@ Scenario: GET - Retrieve all products with filtering
       description: '#string',
       price: '#number',
       category: '#string',
-      quantity: '#number'
+      quantity: '#number',
+      version: '#number'
     }
     """
   # Validate filtering worked - response should be an array
@@ -35,11 +36,33 @@ Scenario: GET - Retrieve all products with filtering
       description: '#string',
       price: '#number',
       category: 'Electronics',
-      quantity: '#number'
+      quantity: '#number',
+      version: '#number'
     }
     """
   And match each response == '#? _.price >= 100 && _.price <= 1000'
 
+@products @get @pagination @load
+Scenario: GET - Page through products in a category with a cursor
+  Given param category = 'Electronics'
+  And param size = 1
+  When method GET
+  Then status 200
+  And match response == '#[1]'
+  * def firstId = response[0].id
+  * def nextCursor = karate.response.header('X-Next-Cursor')
+  * match nextCursor == '#string'
+
+  Given path '/api/products'
+  And param category = 'Electronics'
+  And param size = 1
+  And param cursor = nextCursor
+  When method GET
+  Then status 200
+  And match response == '#[1]'
+  And match response[0].category == 'Electronics'
+  And assert response[0].id > firstId
+
 @products @post @file
 Scenario: POST - Create product from JSON file
   # Read product data from external file
@@ -99,7 +122,7 @@ Scenario: PATCH - Conditional update based on current state
   Then status 200
   And match response.price == originalPrice + priceIncrease
 
-@products @get @categories
+@products @get @categories @load
 Scenario: GET - Retrieve product categories
   Given path '/categories'
   When method GET
@@ -107,6 +130,200 @@ Scenario: GET - Retrieve product categories
   And match response == '#[]'
   And match each response == '#string'
 
+@products @get @stats
+Scenario: GET - Aggregate stock and prices per category
+  Given path '/stats'
+  And param groupBy = 'category'
+  When method GET
+  Then status 200
+  And match response.groupBy == 'category'
+  And match response.total contains { count: '#number', totalQuantity: '#number', inventoryValue: '#number' }
+  And match each karate.valuesOf(response.groups) == { count: '#number', totalQuantity: '#number', minPrice: '#number', maxPrice: '#number', averagePrice: '#number', inventoryValue: '#number' }
+  # Other features write Electronics products in parallel, so count a category only this scenario uses
+  * def category = 'Stats-' + java.util.UUID.randomUUID()
+  * match karate.keysOf(response.groups) !contains category
+
+  * def newProduct = karate.merge(read('classpath:testdata/products/new-product.json'), { category: category })
+  Given path '/api/products'
+  And request newProduct
+  When method POST
+  Then status 201
+  * def createdId = response.id
+
+  Given path '/api/products/stats'
+  And param groupBy = 'category'
+  When method GET
+  Then status 200
+  * def group = response.groups[category]
+  And match group contains { count: 1, totalQuantity: '#(newProduct.quantity)', minPrice: '#(newProduct.price)', maxPrice: '#(newProduct.price)' }
+
+  Given path '/api/products', createdId
+  When method DELETE
+  Then status 204
+
+  Given path '/api/products/stats'
+  And param groupBy = 'category'
+  When method GET
+  Then status 200
+  And match karate.keysOf(response.groups) !contains category
+
+  Given path '/api/products/stats'
+  And param groupBy = 'supplier'
+  When method GET
+  Then status 400
+
+@products @get @caching
+Scenario: GET - Revalidate a product listing with its ETag
+  Given param category = 'Home'
+  When method GET
+  Then status 200
+  * def etag = karate.response.header('ETag')
+
+  Given path '/api/products'
+  And param category = 'Home'
+  And header If-None-Match = etag
+  When method GET
+  Then status 304
+
+  * def newProduct = read('classpath:testdata/products/new-product.json')
+  Given path '/api/products'
+  And request newProduct
+  When method POST
+  Then status 201
+  And match response.version == 1
+  * def createdId = response.id
+
+  Given path '/api/products'
+  And param category = 'Home'
+  And header If-None-Match = etag
+  When method GET
+  Then status 200
+  And match karate.response.header('ETag') != etag
+
+  Given path '/api/products', createdId
+  When method DELETE
+  Then status 204
+
+@products @get @caching
+Scenario: GET - Negotiate a binary encoding of the product listing
+  # The configured headers win over the header keyword, so swap Accept there
+  * configure headers = karate.merge(defaultHeaders, authHeader, { Accept: 'application/cbor' })
+  When method GET
+  Then status 200
+  And match karate.response.header('Content-Type') == 'application/cbor'
+  And match karate.lowerCase(karate.response.header('Vary')) contains 'accept'
+  * def cborEtag = karate.response.header('ETag')
+
+  * configure headers = karate.merge(defaultHeaders, authHeader)
+  Given path '/api/products'
+  When method GET
+  Then status 200
+  And match response == '#[]'
+  And match karate.response.header('ETag') != cborEtag
+
+@products @get @caching
+Scenario: GET - Negotiate a binary encoding of a single product
+  * def newProduct = read('classpath:testdata/products/new-product.json')
+  Given request newProduct
+  When method POST
+  Then status 201
+  * def createdId = response.id
+
+  Given path '/api/products', createdId
+  When method GET
+  Then status 200
+  * def jsonEtag = karate.response.header('ETag')
+
+  # Each encoding has its own strong tag, and caches are told the body depends on Accept
+  * configure headers = karate.merge(defaultHeaders, authHeader, { Accept: 'application/x-jackson-smile' })
+  Given path '/api/products', createdId
+  When method GET
+  Then status 200
+  And match karate.response.header('Content-Type') == 'application/x-jackson-smile'
+  And match karate.lowerCase(karate.response.header('Vary')) contains 'accept'
+  * def smileEtag = karate.response.header('ETag')
+  And match smileEtag != jsonEtag
+
+  Given path '/api/products', createdId
+  And header If-None-Match = jsonEtag
+  When method GET
+  Then status 200
+
+  Given path '/api/products', createdId
+  And header If-None-Match = smileEtag
+  When method GET
+  Then status 304
+
+  # Either tag names the version for If-Match
+  * configure headers = karate.merge(defaultHeaders, authHeader)
+  Given path '/api/products', createdId
+  And header If-Match = smileEtag
+  And request { name: 'Patched through Smile tag' }
+  When method PATCH
+  Then status 200
+  And match response.name == 'Patched through Smile tag'
+
+  Given path '/api/products', createdId
+  When method DELETE
+  Then status 204
+
+@products @bulk
+Scenario: POST - Apply mixed bulk operations to products
+  * def newProduct = read('classpath:testdata/products/new-product.json')
+  # A client-supplied version is ignored on create, as it is for single creates
+  * def versionedProduct = karate.merge(newProduct, { version: 99 })
+  Given path '/_bulk'
+  And request [{ op: 'create', data: '#(newProduct)' }, { op: 'create', data: '#(versionedProduct)' }]
+  When method POST
+  Then status 200
+  And match each response contains { op: 'create', status: 201 }
+  And match each response[*].data.version == 1
+  * def firstId = response[0].id
+  * def secondId = response[1].id
+
+  Given path '/api/products/_bulk'
+  And request
+    """
+    [
+      { "op": "patch", "id": #(firstId), "data": { "price": 1.50 } },
+      { "op": "delete", "id": #(secondId) },
+      { "op": "delete" },
+      { "op": "archive", "id": #(firstId) },
+      { "op": "delete", "id": #(firstId) }
+    ]
+    """
+  When method POST
+  Then status 200
+  And match response[0] contains { op: 'patch', status: 200 }
+  And match response[0].data.price == 1.50
+  And match response[1].status == 204
+  And match response[2] == { op: 'delete', status: 400, error: 'Missing id' }
+  And match response[3].error == 'Unknown op: archive'
+  And match response[4].status == 204
+
+@products @bulk
+Scenario: POST - Reject a null bulk operation without failing the others
+  * def newProduct = read('classpath:testdata/products/new-product.json')
+  Given path '/_bulk'
+  And request
+    """
+    [
+      { "op": "create", "data": "#(newProduct)" },
+      null,
+      { "op": "delete", "id": 99999 }
+    ]
+    """
+  When method POST
+  Then status 200
+  And match response == '#[3]'
+  And match response[0] contains { op: 'create', status: 201, id: '#number' }
+  And match response[1] == { status: 400, error: 'Missing operation' }
+  And match response[2] == { op: 'delete', id: 99999, status: 404, error: 'Product not found' }
+
+  Given path '/api/products', response[0].id
+  When method DELETE
+  Then status 204
+
 @regression @products @delete @cleanup
 Scenario: DELETE - Cleanup test products
   # This scenario demonstrates cleanup operations
@@ -6,12 +6,12 @@ Background:
   * def authHeader = getAuthHeaders()
   * configure headers = karate.merge(defaultHeaders, authHeader)
 
-@smoke @users @get
+@smoke @users @get @load
 Scenario: GET - Retrieve all users with default pagination
   When method GET
   Then status 200
   And match response == '#[]'
-  And match each response == { id: '#number', name: '#string', email: '#string', role: '##string', active: '#boolean' }
+  And match each response == { id: '#number', name: '#string', email: '#string', role: '##string', active: '#boolean', version: '#number' }
   And assert response.length >= 0
 
 @users @get @queryparams
@@ -26,21 +26,99 @@ Scenario: GET - Retrieve users with query parameters
   And match each response.role == 'admin'
   And match each response.active == true
 
-@users @get
+@users @get @pagination @load
+Scenario: GET - Page through users with a cursor
+  Given param size = 1
+  When method GET
+  Then status 200
+  And match response == '#[1]'
+  * def firstId = response[0].id
+  * def nextCursor = karate.response.header('X-Next-Cursor')
+  * match nextCursor == '#string'
+
+  # The cursor resumes after the last user seen, whatever the page number
+  Given path '/api/users'
+  And param size = 1
+  And param cursor = nextCursor
+  When method GET
+  Then status 200
+  And match response == '#[1]'
+  And assert response[0].id > firstId
+
+@users @get @pagination @error-handling
+Scenario: GET - Reject an invalid pagination cursor
+  Given param cursor = 'not-a-cursor'
+  When method GET
+  Then status 400
+
+@users @get @load
 Scenario: GET - Retrieve specific user by ID
   Given path '/1'
   When method GET
   Then status 200
-  And match response == { id: 1, name: '#string', email: '#string', role: '#string', active: '#boolean' }
+  And match response == { id: 1, name: '#string', email: '#string', role: '#string', active: '#boolean', version: '#number' }
   And match response.id == 1
 
-@users @get
+@users @get @caching
+Scenario: GET - Revalidate a user with its ETag
+  Given path '/1'
+  When method GET
+  Then status 200
+  * def etag = karate.response.header('ETag')
+  * match etag == '#regex "[^"]+"'
+
+  Given path '/api/users/1'
+  And header If-None-Match = etag
+  When method GET
+  Then status 304
+  And match karate.response.header('ETag') == etag
+
+  Given path '/api/users/1'
+  And request { role: '#(response.role)' }
+  When method PATCH
+  Then status 200
+
+  Given path '/api/users/1'
+  And header If-None-Match = etag
+  When method GET
+  Then status 200
+  And match karate.response.header('ETag') != etag
+
+@users @patch @caching
+Scenario: PATCH - Reject an update based on a stale ETag
+  Given path '/2'
+  When method GET
+  Then status 200
+  * def etag = karate.response.header('ETag')
+
+  Given path '/api/users/2'
+  And header If-Match = etag
+  And request { role: 'user' }
+  When method PATCH
+  Then status 200
+  And match response.version == '#number'
+  * def freshEtag = karate.response.header('ETag')
+  * match freshEtag != etag
+
+  Given path '/api/users/2'
+  And header If-Match = etag
+  And request { role: 'admin' }
+  When method PATCH
+  Then status 412
+
+  Given path '/api/users/2'
+  When method GET
+  Then status 200
+  And match response.role == 'user'
+  And match karate.response.header('ETag') == freshEtag
+
+@users @get @load
 Scenario: GET - Handle non-existent user
   Given path '/99999'
   When method GET
   Then status 404
 
-@smoke @users @post
+@smoke @users @post @load
 Scenario: POST - Create new user
   * def newUser = 
     """
@@ -116,10 +194,80 @@ Scenario: DELETE - Remove user
   When method GET
   Then status 404
 
-@users @search
+@users @search @load
 Scenario: GET - Search users with query string
   Given path '/search'
   And param query = 'john'
   When method GET
   Then status 200
-  And match response == '#[]'
\ No newline at end of file
+  And match response == '#[]'
+
+@users @search @pagination @load
+Scenario: GET - Search users with limit and offset
+  Given path '/search'
+  And param query = 'example.com'
+  And param limit = 1
+  And param offset = 1
+  When method GET
+  Then status 200
+  And match response == '#[1]'
+  And match response[0].email contains 'example.com'
+
+@users @bulk
+Scenario: POST - Bulk create and delete users in one request
+  * def bulkUsers = read('classpath:testdata/users/bulk-users.json')
+  * def createOps = karate.map(bulkUsers, function(u){ return { op: 'create', data: u } })
+  Given path '/_bulk'
+  And request createOps
+  When method POST
+  Then status 200
+  And match response == '#[3]'
+  And match each response contains { op: 'create', status: 201, id: '#number' }
+  And match response[0].data contains bulkUsers[0]
+  # Ids come from one contiguous range
+  And assert response[2].id == response[0].id + 2
+
+  * def deleteOps = karate.map(response, function(r){ return { op: 'delete', id: r.id } })
+  * def deleteOps = karate.append(deleteOps, { op: 'delete', id: 99999 })
+  Given path '/api/users/_bulk'
+  And request deleteOps
+  When method POST
+  Then status 200
+  And match response == '#[4]'
+  And match response[0] == { op: 'delete', id: '#number', status: 204 }
+  And match response[3] == { op: 'delete', id: 99999, status: 404, error: 'User not found' }
+
+@users @ndjson
+Scenario: GET/POST - Stream users out and back in as NDJSON
+  * def stamp = java.lang.System.currentTimeMillis()
+  * def lines = '{"name":"Ndjson One ' + stamp + '","email":"one@ndjson.test","role":"user","active":true}\n{"name":"Ndjson Two ' + stamp + '","email":"two@ndjson.test","role":"user","active":false}\n'
+  Given path '/import'
+  And header Content-Type = 'application/x-ndjson'
+  And request lines
+  When method POST
+  Then status 200
+  And match response == { imported: 2 }
+
+  Given path '/api/users/export'
+  When method GET
+  Then status 200
+  And match karate.response.header('Content-Type') contains 'application/x-ndjson'
+  * def exported = karate.map(response.trim().split('\n'), function(line){ return JSON.parse(line) })
+  * def ours = karate.filter(exported, function(u){ return u.name.endsWith(' ' + stamp) })
+  * match ours == '#[2]'
+  * match each ours contains { id: '#number', role: 'user' }
+
+  # Malformed lines are rejected, keeping the records parsed before them
+  Given path '/api/users/import'
+  And header Content-Type = 'application/x-ndjson'
+  And request '{"name":"Ndjson Three ' + stamp + '","email":"three@ndjson.test"}\n{not json}\n'
+  When method POST
+  Then status 400
+  And match response.imported == 1
+  And match response.error == '#string'
+
+  * def cleanup = karate.map(ours, function(u){ return { op: 'delete', id: u.id } })
+  Given path '/api/users/_bulk'
+  And request cleanup
+  When method POST
+  Then status 200
@@ -22,24 +22,10 @@ function authUtils() {
       };
     }
     
-    // Check if we already have a cached token
-    var cachedToken = karate.get('authToken');
-    if (cachedToken && cachedToken['iam-claimsetjwt']) {
-      karate.log('Using cached authentication token');
-      return cachedToken;
-    }
-    
-    // Get a new token
-    karate.log('Getting new authentication token...');
-    var tokenHelper = karate.call('classpath:com/example/karate/config/token-helper.feature', config);
-    
-    if (tokenHelper && tokenHelper.authHeader) {
-      karate.log('Authentication token obtained successfully');
-      return tokenHelper.authHeader;
-    } else {
-      karate.log('Failed to obtain authentication token');
-      throw new Error('Unable to obtain authentication token');
-    }
+    // One token per token URL and config for the whole JVM, shared by all runner threads and
+    // refreshed shortly before it expires
+    var SharedTokenProvider = Java.type('com.example.karate.config.SharedTokenProvider');
+    return SharedTokenProvider.headers(config.tokenUrl, config.tokenConfig);
   };
   
   /**